@@ -0,0 +1,139 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.CodegenOperation;
+import io.swagger.codegen.DefaultGenerator;
+import io.swagger.models.Model;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import java.io.File;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * DefaultGenerator exposing the intermediate steps of the generation, so each of them can be measured in isolation:
+ * <ul>
+ * <li>the processing of the models and operations, with or without the postProcessModels and postProcessOperations hooks of the
+ * generator, so the cost of the hooks is the difference between both</li>
+ * <li>the input of every api and model template, recorded from a full generation, so it can be rendered again</li>
+ * </ul>
+ */
+public class BenchmarkGenerator extends DefaultGenerator {
+
+    private final List<TemplateInput> templateInputs = new ArrayList<>();
+
+    public BenchmarkGenerator(final String lang, final File outputDir) {
+        opts(KillbillSpec.clientOptInput(lang, outputDir));
+    }
+
+    public CodegenConfig getConfig() {
+        return config;
+    }
+
+    // What generate() does before processing any model or operation (processOpts, preprocessSwagger, ...)
+    public BenchmarkGenerator configure() {
+        configureGeneratorProperties();
+        configureSwaggerInfo();
+        return this;
+    }
+
+    /**
+     * @return a new map per model, as returned by (or, without hooks, handed to) CodegenConfig#postProcessModels
+     */
+    public List<Map<String, Object>> processModels(final boolean withHooks) {
+        final CodegenConfig modelConfig = withHooks ? config : withoutHooks(config);
+        final Map<String, Model> definitions = swagger.getDefinitions();
+        final List<Map<String, Object>> result = new ArrayList<>();
+        for (final String name : new TreeSet<>(definitions.keySet())) {
+            // Same models DefaultGenerator#generateModels processes
+            if (config.importMapping().containsKey(name)) {
+                continue;
+            }
+            final Map<String, Object> models = processModels(modelConfig, Collections.singletonMap(name, definitions.get(name)), definitions);
+            if (models != null) {
+                result.add(models);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a new map per tag, as returned by (or, without hooks, handed to) CodegenConfig#postProcessOperations
+     */
+    public List<Map<String, Object>> processOperations(final boolean withHooks) {
+        final CodegenConfig operationConfig = withHooks ? config : withoutHooks(config);
+        final Map<String, List<CodegenOperation>> paths = processPaths(swagger.getPaths());
+        final List<Map<String, Object>> result = new ArrayList<>();
+        for (final String tag : new TreeSet<>(paths.keySet())) {
+            result.add(processOperations(operationConfig, tag, paths.get(tag), Collections.emptyList()));
+        }
+        return result;
+    }
+
+    /**
+     * Runs the whole generation, recording the input of every api and model template instead of writing those files.
+     */
+    public List<TemplateInput> record() {
+        generate();
+        return templateInputs;
+    }
+
+    // Same as DefaultGenerator#processTemplateToFile, without writing the result
+    public String render(final TemplateInput input) {
+        final Mustache.Compiler compiler = config.processCompiler(Mustache.compiler());
+        final Template template = compiler.withLoader(new Mustache.TemplateLoader() {
+            @Override
+            public Reader getTemplate(final String name) {
+                return getTemplateReader(getFullTemplateFile(config, name + ".mustache"));
+            }
+        }).defaultValue("").compile(readTemplate(getFullTemplateFile(config, input.templateName)));
+        return template.execute(input.templateData);
+    }
+
+    @Override
+    protected File processTemplateToFile(final Map<String, Object> templateData, final String templateName, final String outputFilename) {
+        templateInputs.add(new TemplateInput(templateData, templateName));
+        return new File(outputFilename);
+    }
+
+    // Runs DefaultGenerator#processModels and #processOperations without calling the hooks of the generator
+    private static CodegenConfig withoutHooks(final CodegenConfig config) {
+        return (CodegenConfig) Proxy.newProxyInstance(CodegenConfig.class.getClassLoader(), new Class[]{CodegenConfig.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "postProcessModels":
+                case "postProcessOperations":
+                case "postProcessOperationsWithModels":
+                    return args[0];
+                default:
+                    try {
+                        return method.invoke(config, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        });
+    }
+
+    public static class TemplateInput {
+
+        private final Map<String, Object> templateData;
+        private final String templateName;
+
+        private TemplateInput(final Map<String, Object> templateData, final String templateName) {
+            this.templateData = templateData;
+            this.templateName = templateName;
+        }
+
+        public String getTemplateName() {
+            return templateName;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Main class of benchmarks.jar: same as org.openjdk.jmh.Main, always adding the GC profiler so allocation rates
+ * (gc.alloc.rate.norm, bytes allocated per operation) are reported next to the timings.
+ */
+public class Benchmarks {
+
+    public static void main(final String[] args) throws Exception {
+        final List<String> options = new ArrayList<>(Arrays.asList(args));
+        options.add("-prof");
+        options.add("gc");
+        Main.main(options.toArray(new String[0]));
+    }
+}
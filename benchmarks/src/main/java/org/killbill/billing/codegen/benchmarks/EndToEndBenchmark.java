@@ -0,0 +1,61 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import io.swagger.codegen.DefaultGenerator;
+
+import org.killbill.billing.codegen.KillbillGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full generation of a client, from parsing the spec to writing all the files, i.e what build.sh runs
+ * (with -p for the parallel generator).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({KillbillSpec.KILLBILL_JAVA, KillbillSpec.KILLBILL_PYTHON})
+    public String lang;
+
+    @Param({"default", "parallel"})
+    public String generator;
+
+    private File outputDir;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        outputDir = KillbillSpec.createTempDirectory("kb-" + lang);
+        pool = new ForkJoinPool();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<File> generate() {
+        final DefaultGenerator defaultGenerator = "parallel".equals(generator) ? new KillbillGenerator(pool) : new DefaultGenerator();
+        return defaultGenerator.opts(KillbillSpec.clientOptInput(lang, outputDir)).generate();
+    }
+}
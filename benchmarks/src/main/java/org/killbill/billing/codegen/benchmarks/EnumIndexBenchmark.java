@@ -0,0 +1,55 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import org.killbill.billing.codegen.languages.ApiEnumIndex;
+import org.killbill.billing.codegen.languages.ClassFileEnumScanner;
+import org.killbill.billing.codegen.languages.ClassUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexing of the Kill Bill API enums (-DkbApiJar), done every time a generator is created.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnumIndexBenchmark {
+
+    private String apiJar;
+
+    @Setup
+    public void setUp() throws IOException {
+        apiJar = KillbillSpec.apiJar();
+        // Populate the on-disk cache
+        ApiEnumIndex.load(apiJar);
+    }
+
+    @Benchmark
+    public List<ApiEnumIndex.ApiEnum> scanClassFiles() throws IOException {
+        return ClassFileEnumScanner.scan(apiJar);
+    }
+
+    @Benchmark
+    public List<ApiEnumIndex.ApiEnum> findAPIEnumConstants() throws IOException {
+        return ClassUtil.findAPIEnumConstants(apiJar);
+    }
+
+    @Benchmark
+    public ApiEnumIndex loadFromDiskCache() throws IOException {
+        return ApiEnumIndex.load(apiJar);
+    }
+}
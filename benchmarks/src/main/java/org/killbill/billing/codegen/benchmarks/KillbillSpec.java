@@ -0,0 +1,100 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import io.swagger.codegen.ClientOptInput;
+import io.swagger.codegen.config.CodegenConfigurator;
+
+import org.killbill.billing.codegen.languages.ApiEnumIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Inputs shared by all the benchmarks: the checked-in Kill Bill spec (kbswagger.json, packaged in the benchmark jar)
+ * and the Kill Bill API jar the generators index the enums from.
+ * <p>
+ * The generators are configured through system properties, like build.sh does. The API jar defaults to the
+ * killbill-api.jar copied next to benchmarks.jar by the build, and can be overridden with -DkbApiJar=<location of the jar>.
+ */
+public class KillbillSpec {
+
+    public static final String KILLBILL_JAVA = "killbill-java";
+    public static final String KILLBILL_PYTHON = "killbill-python";
+
+    private static final String SPEC = "kbswagger.json";
+    private static final String API_JAR = "killbill-api.jar";
+
+    private static File specFile;
+
+    static {
+        System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+        if (System.getProperty("kbApiJar") == null) {
+            System.setProperty("kbApiJar", new File(locate(KillbillSpec.class).getParentFile(), API_JAR).getPath());
+        }
+        // Same options as build.sh
+        System.setProperty("apiDocs", "false");
+        System.setProperty("apiTests", "false");
+        System.setProperty("modelDocs", "false");
+        System.setProperty("modelTests", "false");
+        // Do not use (or pollute) the enum cache of the user
+        if (System.getProperty(ApiEnumIndex.CACHE_DIR_PROPERTY) == null) {
+            System.setProperty(ApiEnumIndex.CACHE_DIR_PROPERTY, createTempDirectory("kb-api-enums").getPath());
+        }
+    }
+
+    public static String apiJar() {
+        return System.getProperty("kbApiJar");
+    }
+
+    public static synchronized File specFile() {
+        if (specFile == null) {
+            final File file = new File(createTempDirectory("kb-spec"), SPEC);
+            try {
+                final InputStream in = KillbillSpec.class.getClassLoader().getResourceAsStream(SPEC);
+                if (in == null) {
+                    throw new IllegalStateException("Missing " + SPEC + " from the classpath");
+                }
+                try {
+                    Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            specFile = file;
+        }
+        return specFile;
+    }
+
+    // Same input the swagger-codegen cli builds for: generate -l <lang> -i kbswagger.json -o <outputDir>
+    public static ClientOptInput clientOptInput(final String lang, final File outputDir) {
+        final CodegenConfigurator configurator = new CodegenConfigurator();
+        configurator.setLang(lang);
+        configurator.setInputSpec(specFile().getPath());
+        configurator.setOutputDir(outputDir.getPath());
+        return configurator.toClientOptInput();
+    }
+
+    public static File createTempDirectory(final String prefix) {
+        try {
+            final File dir = Files.createTempDirectory(prefix).toFile();
+            dir.deleteOnExit();
+            return dir;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static File locate(final Class<?> clazz) {
+        try {
+            return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
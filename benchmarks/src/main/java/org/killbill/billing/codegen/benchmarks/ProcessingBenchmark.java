@@ -0,0 +1,63 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processing of all the models and tags of the spec, i.e what DefaultGenerator does before rendering the templates.
+ * <p>
+ * The postProcessModels and postProcessOperations hooks modify their input, so they cannot be measured alone: the
+ * *Baseline benchmarks run the same processing without the hooks, and the cost (time and allocations) of the hooks
+ * of the generator is the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessingBenchmark {
+
+    @Param({KillbillSpec.KILLBILL_JAVA, KillbillSpec.KILLBILL_PYTHON})
+    public String lang;
+
+    private BenchmarkGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new BenchmarkGenerator(lang, KillbillSpec.createTempDirectory("kb-processing")).configure();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> postProcessModels() {
+        return generator.processModels(true);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> postProcessModelsBaseline() {
+        return generator.processModels(false);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> postProcessOperations() {
+        return generator.processOperations(true);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> postProcessOperationsBaseline() {
+        return generator.processOperations(false);
+    }
+}
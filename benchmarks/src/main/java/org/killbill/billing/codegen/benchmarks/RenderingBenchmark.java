@@ -0,0 +1,50 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of all the api and model templates, from the input recorded during a full generation.
+ * <p>
+ * Like DefaultGenerator, each template is compiled every time it is rendered.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({KillbillSpec.KILLBILL_JAVA, KillbillSpec.KILLBILL_PYTHON})
+    public String lang;
+
+    private BenchmarkGenerator generator;
+    private List<BenchmarkGenerator.TemplateInput> inputs;
+
+    @Setup
+    public void setUp() {
+        generator = new BenchmarkGenerator(lang, KillbillSpec.createTempDirectory("kb-rendering"));
+        inputs = generator.record();
+    }
+
+    @Benchmark
+    public void renderApisAndModels(final Blackhole blackhole) {
+        for (final BenchmarkGenerator.TemplateInput input : inputs) {
+            blackhole.consume(generator.render(input));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.killbill.billing.codegen.languages;
+
+import io.swagger.codegen.CodegenOperation;
+import io.swagger.codegen.CodegenParameter;
+
+import org.killbill.billing.codegen.benchmarks.BenchmarkGenerator;
+import org.killbill.billing.codegen.benchmarks.KillbillSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KillbillJavaGenerator#convertToExtendedCodegenParam and #addImportIfRequired over the parameters of all the operations,
+ * i.e the bulk of postProcessOperations. Lives in the generator package to reach those methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtendedCodegenParamBenchmark {
+
+    private KillbillJavaGenerator config;
+    private List<List<CodegenParameter>> allParams;
+    private List<List<Map<String, String>>> imports;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final BenchmarkGenerator generator = new BenchmarkGenerator(KillbillSpec.KILLBILL_JAVA, KillbillSpec.createTempDirectory("kb-params")).configure();
+        config = (KillbillJavaGenerator) generator.getConfig();
+        allParams = new ArrayList<>();
+        imports = new ArrayList<>();
+        for (final Map<String, Object> operations : generator.processOperations(false)) {
+            final Map<String, Object> objs = (Map<String, Object>) operations.get("operations");
+            for (final CodegenOperation op : (List<CodegenOperation>) objs.get("operation")) {
+                allParams.add(op.allParams);
+                imports.add((List<Map<String, String>>) operations.get("imports"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void convertToExtendedCodegenParam(final Blackhole blackhole) {
+        for (int i = 0; i < allParams.size(); i++) {
+            // The imports already contain everything after the first invocation, which is also the common case during generation
+            blackhole.consume(config.convertToExtendedCodegenParam(allParams.get(i), imports.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void addImportIfRequired(final Blackhole blackhole) {
+        final List<Map<String, String>> result = new ArrayList<>();
+        for (final List<Map<String, String>> tagImports : imports) {
+            for (final Map<String, String> tagImport : tagImports) {
+                config.addImportIfRequired(result, tagImport.get("import"));
+            }
+        }
+        blackhole.consume(result);
+    }
+}
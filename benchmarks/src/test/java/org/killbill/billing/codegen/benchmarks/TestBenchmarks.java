@@ -0,0 +1,69 @@
+package org.killbill.billing.codegen.benchmarks;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.codegen.languages.ExtendedCodegenParamBenchmark;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Every benchmark runs (once, in this JVM): a smoke test, not a measurement.
+ */
+public class TestBenchmarks {
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        // Not packaged yet, so not next to the benchmark classes
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+    }
+
+    @Test(timeout = 600000)
+    public void testEnumIndex() throws Exception {
+        run(EnumIndexBenchmark.class);
+    }
+
+    @Test(timeout = 600000)
+    public void testProcessing() throws Exception {
+        run(ProcessingBenchmark.class);
+    }
+
+    @Test(timeout = 600000)
+    public void testExtendedCodegenParam() throws Exception {
+        run(ExtendedCodegenParamBenchmark.class);
+    }
+
+    @Test(timeout = 600000)
+    public void testRendering() throws Exception {
+        run(RenderingBenchmark.class);
+    }
+
+    @Test(timeout = 600000)
+    public void testEndToEnd() throws Exception {
+        run(EndToEndBenchmark.class);
+    }
+
+    private static void run(final Class<?> benchmark) throws Exception {
+        final Options options = new OptionsBuilder().include("^" + benchmark.getName().replace(".", "\\.") + "\\.")
+                                                    .forks(0)
+                                                    .warmupIterations(0)
+                                                    .measurementIterations(1)
+                                                    .measurementTime(TimeValue.milliseconds(1))
+                                                    .shouldFailOnError(true)
+                                                    .build();
+        final Collection<RunResult> results = new Runner(options).run();
+        assertFalse(results.isEmpty());
+        for (final RunResult result : results) {
+            assertTrue(result.getPrimaryResult().getSampleCount() > 0);
+        }
+    }
+}
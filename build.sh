@@ -92,13 +92,22 @@ fi
 ###############################################################################
 
 function usage() {
-  echo "> ./build.sh -l <language> -o <output> []-v] [-d] [-w] " >&2
+  echo "> ./build.sh -l <language> -o <output> []-v] [-d] [-w] [-n] [-p] [-c] " >&2
   echo "" >&2
   echo "# Example to generate code for java, run validation, and wait for java debugger to start on port 5005: " >&2
   echo "> ./build.sh -l killbill-java -o ../killbill-client-java -v -w" >&2
   echo "" >&2
   echo "# Example to generate code from input file and api version " >&2
   echo "> ./build.sh -l killbill-java -o ../killbill-client-java -i <swagger.yaml> -a <killbill_api_version>" >&2
+  echo "" >&2
+  echo "# Example to only regenerate the api and model files whose part of the spec changed since the last run " >&2
+  echo "> ./build.sh -l killbill-java -o ../killbill-client-java -n" >&2
+  echo "" >&2
+  echo "# Example to process and render models and apis in parallel " >&2
+  echo "> ./build.sh -l killbill-java -o ../killbill-client-java -p" >&2
+  echo "" >&2
+  echo "# Example to keep running and regenerate the code whenever the spec or a template under src/main/resources changes " >&2
+  echo "> ./build.sh -l killbill-java -o ../killbill-client-java -i <swagger.yaml> -c" >&2
   exit 1
 }
 
@@ -221,6 +230,9 @@ function generate_client_code() {
   local client=$3
   local output=$4
   local wait_for_debug=$5
+  local incremental=$6
+  local parallel=$7
+  local watch=$8
 
   echo "Generating client code for language $client into $output" >&2
 
@@ -231,17 +243,31 @@ function generate_client_code() {
     echo "" >&2
   fi
 
-  $JAVA $java_debug\
+  local incremental_opt=
+  if  [ ! -z $incremental ]; then
+    incremental_opt=" -Dincremental=true "
+  fi
+
+  local main="io.swagger.codegen.SwaggerCodegen generate"
+  # Only KillbillCodegen leaves the unchanged supporting files untouched
+  if  [ ! -z $parallel ] || [ ! -z $incremental ]; then
+    main="org.killbill.billing.codegen.KillbillCodegen"
+  fi
+  if  [ ! -z $watch ]; then
+    main="org.killbill.billing.codegen.KillbillCodegen -w -t src/main/resources/$client"
+  fi
+
+  $JAVA $java_debug $incremental_opt\
   -DkbApiJar=$apiJar \
   -DapiDocs=false \
   -DapiTests=false \
   -DmodelDocs=false \
   -DgenerateApiDocs=false \
   -cp $SWAGGER_CODEGEN_JAR:$KB_SWAGGER_CODEGEN_JAR \
-  io.swagger.codegen.SwaggerCodegen generate \
-  -l "python"  \
-  -i "./kbswagger.yaml"  \
-  -o "/mnt/c/dev/projects/practicenow/practicenow/external/killbill-client-python"
+  $main \
+  -l "$client"  \
+  -i "$swaggerInput"  \
+  -o "$output"
 }
 
 function copy_files() {
@@ -266,9 +292,12 @@ function copy_files() {
 ###############################################################################
 
 
-while getopts ":o:i:a:l:vdw" options; do
+while getopts ":o:i:a:l:vdwnpc" options; do
   case $options in
         w ) WAIT_DEBUGGER=1;;
+        n ) INCREMENTAL=1;;
+        p ) PARALLEL=1;;
+        c ) WATCH=1;;
         v ) VALIDATE_SCHEMA=1;;
         o ) OUTPUT=$OPTARG;;
         l ) LANGUAGE=$OPTARG;;
@@ -329,7 +358,7 @@ fi
 API_JAR=`validate_and_return_api_jar $API_VERSION`
 
 # Run generator
-generate_client_code $API_JAR $INPUT $LANGUAGE $OUTPUT $WAIT_DEBUGGER
+generate_client_code $API_JAR $INPUT $LANGUAGE $OUTPUT "$WAIT_DEBUGGER" "$INCREMENTAL" "$PARALLEL" $WATCH
 
 
 # Copy VERSION file
@@ -0,0 +1,218 @@
+package org.killbill.billing.codegen;
+
+import io.swagger.codegen.ClientOptInput;
+import io.swagger.codegen.ClientOpts;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.CodegenConfigLoader;
+import io.swagger.codegen.CodegenConstants;
+import io.swagger.models.Swagger;
+import io.swagger.parser.SwaggerParser;
+import io.swagger.parser.util.ParseOptions;
+import io.swagger.util.Json;
+
+import org.killbill.billing.codegen.languages.SpecFingerprints;
+import org.killbill.billing.codegen.languages.SpecNormalizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Entry point to generate the Kill Bill clients with the {@link KillbillGenerator}, i.e processing and rendering
+ * models and apis in parallel.
+ * <p>
+ * Usage: KillbillCodegen -l <language> -i <spec> -o <output> [-t <template dir>] [-w]
+ * <p>
+ * Several clients can be generated at once from a single parse of the spec, e.g -l killbill-java,killbill-python -o java,python
+ * (one output directory per language, in the same order): the spec is parsed and normalized (see {@link SpecNormalizer})
+ * once, then all the clients are generated concurrently.
+ * <p>
+ * Kill Bill specific settings (-DkbApiJar, -Dincremental, ...) are passed as system properties, like with the swagger-codegen cli,
+ * and so is the selection of the models and apis to generate (-Dmodels=..., -Dapis=...).
+ * The size of the pool defaults to the number of cores and can be configured with -Dparallelism=<n>.
+ * With -w, the process keeps running and regenerates the client whenever the spec or a template changes, see {@link KillbillCodegenDaemon}.
+ */
+public class KillbillCodegen {
+
+    public static final String PARALLELISM = "parallelism";
+
+    public static void main(final String[] args) throws Exception {
+        String lang = null;
+        String inputSpec = null;
+        String output = null;
+        String templateDir = null;
+        boolean watch = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("-w".equals(args[i])) {
+                watch = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                usage();
+            }
+            switch (args[i]) {
+                case "-l":
+                    lang = args[++i];
+                    break;
+                case "-i":
+                    inputSpec = args[++i];
+                    break;
+                case "-o":
+                    output = args[++i];
+                    break;
+                case "-t":
+                    templateDir = args[++i];
+                    break;
+                default:
+                    usage();
+            }
+        }
+        if (lang == null || inputSpec == null || output == null) {
+            usage();
+        }
+        final List<String> langs = Arrays.asList(lang.split(","));
+        final List<String> outputs = Arrays.asList(output.split(","));
+        if (langs.size() != outputs.size() || (langs.size() > 1 && (templateDir != null || watch))) {
+            usage();
+        }
+
+        final Map<String, String> generatorProperties = new HashMap<>();
+        for (final String key : new String[]{KillbillGenerator.MODELS, KillbillGenerator.APIS}) {
+            if (System.getProperty(key) != null) {
+                generatorProperties.put(key, System.getProperty(key));
+            }
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(Integer.getInteger(PARALLELISM, Runtime.getRuntime().availableProcessors()));
+        try {
+            if (watch) {
+                // Only rewrite the files whose input changed, unless explicitly disabled
+                if (System.getProperty(SpecFingerprints.INCREMENTAL) == null) {
+                    System.setProperty(SpecFingerprints.INCREMENTAL, "true");
+                }
+                new KillbillCodegenDaemon(pool, lang, inputSpec, output, templateDir, generatorProperties).run();
+            } else if (langs.size() > 1) {
+                generate(pool, langs, inputSpec, outputs, generatorProperties);
+            } else {
+                generate(pool, lang, inputSpec, output, templateDir, generatorProperties);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void generate(final ForkJoinPool pool, final String lang, final String inputSpec, final String output, final String templateDir) {
+        generate(pool, lang, inputSpec, output, templateDir, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * @param generatorProperties see {@link KillbillGenerator}, e.g models=Account,Invoice
+     */
+    public static void generate(final ForkJoinPool pool, final String lang, final String inputSpec, final String output, final String templateDir,
+                                final Map<String, String> generatorProperties) {
+        final CodegenConfig config = newConfig(lang, inputSpec, output, templateDir);
+        newGenerator(pool, new TemplateCache(), generatorProperties).opts(newClientOptInput(config, parse(config, inputSpec))).generate();
+    }
+
+    /**
+     * @param generatorProperties see {@link KillbillGenerator}, e.g models=Account,Invoice
+     */
+    public static KillbillGenerator newGenerator(final ForkJoinPool pool, final TemplateCache templates, final Map<String, String> generatorProperties) {
+        final KillbillGenerator generator = new KillbillGenerator(pool, templates);
+        for (final Map.Entry<String, String> entry : generatorProperties.entrySet()) {
+            generator.setGeneratorPropertyDefault(entry.getKey(), entry.getValue());
+        }
+        return generator;
+    }
+
+    /**
+     * Generates each language in its output directory (same order), from a single parse and normalization of the spec.
+     *
+     * @param generatorProperties see {@link KillbillGenerator}, applied to every language
+     */
+    public static void generate(final ForkJoinPool pool, final List<String> langs, final String inputSpec, final List<String> outputs,
+                                final Map<String, String> generatorProperties) {
+        final List<CodegenConfig> configs = new ArrayList<>(langs.size());
+        for (int i = 0; i < langs.size(); i++) {
+            final CodegenConfig config = newConfig(langs.get(i), inputSpec, outputs.get(i), null);
+            if (!configs.isEmpty() && config.isUsingFlattenSpec() != configs.get(0).isUsingFlattenSpec()) {
+                throw new IllegalArgumentException(langs.get(i) + " and " + langs.get(0) + " do not parse the spec the same way, generate them separately");
+            }
+            configs.add(config);
+        }
+
+        final Swagger swagger = parse(configs.get(0), inputSpec);
+        if (swagger == null) {
+            throw new IllegalArgumentException("Cannot parse " + inputSpec);
+        }
+        SpecNormalizer.normalize(swagger);
+        // Generation modifies the spec (examples, vendor extensions): the first language gets the parsed spec, the
+        // other ones a copy, which is much cheaper than parsing (and resolving) the spec again
+        final String spec;
+        try {
+            spec = Json.mapper().writeValueAsString(swagger);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final List<Callable<Void>> tasks = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            final CodegenConfig config = configs.get(i);
+            final boolean first = i == 0;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    final Swagger input = first ? swagger : Json.mapper().readValue(spec, Swagger.class);
+                    newGenerator(pool, new TemplateCache(), generatorProperties).opts(newClientOptInput(config, input)).generate();
+                    return null;
+                }
+            });
+        }
+        KillbillGenerator.invokeAll(pool, tasks);
+    }
+
+    /**
+     * Same config as the one CodegenConfigurator#toClientOptInput builds for the swagger-codegen cli options we support.
+     */
+    public static CodegenConfig newConfig(final String lang, final String inputSpec, final String output, final String templateDir) {
+        final CodegenConfig config = CodegenConfigLoader.forName(lang);
+        config.setInputSpec(inputSpec);
+        config.setOutputDir(new File(output).getAbsolutePath());
+        // CodegenConfigurator defaults
+        config.additionalProperties().put(CodegenConstants.GIT_USER_ID, "GIT_USER_ID");
+        config.additionalProperties().put(CodegenConstants.GIT_REPO_ID, "GIT_REPO_ID");
+        config.additionalProperties().put(CodegenConstants.RELEASE_NOTE, "Minor update");
+        if (templateDir != null) {
+            config.additionalProperties().put(CodegenConstants.TEMPLATE_DIR, new File(templateDir).getAbsolutePath());
+        }
+        return config;
+    }
+
+    /**
+     * @return the parsed spec, or null if it cannot be read
+     */
+    public static Swagger parse(final CodegenConfig config, final String inputSpec) {
+        final ParseOptions parseOptions = new ParseOptions();
+        parseOptions.setResolve(true);
+        parseOptions.setFlatten(config.isUsingFlattenSpec());
+        return new SwaggerParser().read(inputSpec, null, parseOptions);
+    }
+
+    public static ClientOptInput newClientOptInput(final CodegenConfig config, final Swagger swagger) {
+        return new ClientOptInput().config(config).opts(new ClientOpts()).swagger(swagger);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: KillbillCodegen -l <language> -i <spec> -o <output> [-t <template dir>] [-w]");
+        System.err.println("       KillbillCodegen -l <language>,<language>... -i <spec> -o <output>,<output>...");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,253 @@
+package org.killbill.billing.codegen;
+
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watch mode (KillbillCodegen -w): generates the client once, then keeps running and regenerates it whenever the spec
+ * or a file of the template directory (-t) changes.
+ * <p>
+ * The parsed spec, the API enum index and the compiled templates stay in memory between runs, and only what a change
+ * can affect is regenerated. Generation modifies the spec (examples, vendor extensions), so each run works on its own
+ * copy, deserialized from the parsed spec which is much cheaper than parsing (and resolving) it again.
+ * <p>
+ * What gets regenerated on a change of:
+ * <ul>
+ * <li>spec: everything is processed again, but only the files whose fingerprint changed are rendered and written (see SpecFingerprints)</li>
+ * <li>api (resp. model) templates: only the apis (resp. models)</li>
+ * <li>any other template (partials, supporting files): everything</li>
+ * </ul>
+ */
+public class KillbillCodegenDaemon {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KillbillCodegenDaemon.class);
+
+    // Editors usually write a file in several steps, wait for things to settle before regenerating
+    private static final long QUIET_PERIOD_MS = 50;
+
+    private enum Scope {
+        ALL,
+        APIS,
+        MODELS
+    }
+
+    private final ForkJoinPool pool;
+    private final String lang;
+    private final String inputSpec;
+    private final String output;
+    private final String templateDir;
+    private final Map<String, String> generatorProperties;
+    private final Path specPath;
+    private final Path templatePath;
+    private final TemplateCache templates = new TemplateCache();
+
+    // Parsed spec, serialized
+    private String spec;
+    private CodegenConfig lastConfig;
+
+    /**
+     * @param generatorProperties selection of the models and apis to generate, see {@link KillbillGenerator}
+     */
+    public KillbillCodegenDaemon(final ForkJoinPool pool, final String lang, final String inputSpec, final String output, final String templateDir,
+                                 final Map<String, String> generatorProperties) {
+        this.pool = pool;
+        this.lang = lang;
+        this.inputSpec = inputSpec;
+        this.output = output;
+        this.templateDir = templateDir;
+        this.generatorProperties = generatorProperties;
+        this.specPath = new File(inputSpec).getAbsoluteFile().toPath().normalize();
+        this.templatePath = templateDir != null ? new File(templateDir).getAbsoluteFile().toPath().normalize() : null;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+        try {
+            final Map<WatchKey, Path> directories = new HashMap<>();
+            register(watcher, directories, specPath.getParent());
+            if (templatePath != null) {
+                registerAll(watcher, directories, templatePath);
+            } else {
+                LOGGER.info("No template directory (-t), only watching {}", specPath);
+            }
+
+            spec = parse();
+            if (spec != null) {
+                generate(Scope.ALL);
+            }
+
+            while (true) {
+                WatchKey key = watcher.take();
+                final Set<Path> changed = new HashSet<>();
+                while (key != null) {
+                    collect(watcher, directories, key, changed);
+                    key = watcher.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                regenerate(changed);
+            }
+        } finally {
+            watcher.close();
+        }
+    }
+
+    private void regenerate(final Set<Path> changed) {
+        final boolean specChanged = changed.contains(specPath);
+        final Set<String> changedTemplates = new HashSet<>();
+        for (final Path path : changed) {
+            if (templatePath != null && path.startsWith(templatePath) && isTemplate(path)) {
+                changedTemplates.add(templatePath.relativize(path).toString().replace(File.separatorChar, '/'));
+            }
+        }
+        if (!specChanged && changedTemplates.isEmpty()) {
+            return;
+        }
+
+        if (specChanged) {
+            LOGGER.info("Spec changed: {}", specPath);
+            final String parsed = parse();
+            if (parsed == null) {
+                return;
+            }
+            spec = parsed;
+        }
+        if (!changedTemplates.isEmpty()) {
+            LOGGER.info("Templates changed: {}", changedTemplates);
+            templates.clear();
+        }
+        if (spec == null) {
+            return;
+        }
+
+        if (specChanged || lastConfig == null) {
+            generate(Scope.ALL);
+        } else if (lastConfig.apiTemplateFiles().keySet().containsAll(changedTemplates)) {
+            generate(Scope.APIS);
+        } else if (lastConfig.modelTemplateFiles().keySet().containsAll(changedTemplates)) {
+            generate(Scope.MODELS);
+        } else {
+            generate(Scope.ALL);
+        }
+    }
+
+    private void generate(final Scope scope) {
+        final long start = System.nanoTime();
+        try {
+            final CodegenConfig config = KillbillCodegen.newConfig(lang, inputSpec, output, templateDir);
+            final KillbillGenerator generator = KillbillCodegen.newGenerator(pool, templates, generatorProperties(scope));
+            final Swagger swagger = Json.mapper().readValue(spec, Swagger.class);
+            final List<File> files = generator.opts(KillbillCodegen.newClientOptInput(config, swagger)).generate();
+            lastConfig = config;
+            LOGGER.info("Generated {} {} file(s) in {} ms", files.size(), scope.name().toLowerCase(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (final IOException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // Stopping, run() exits on the next wait
+                return;
+            }
+            // Keep watching, the next change will likely fix it
+            LOGGER.warn("Generation failed", e);
+        }
+    }
+
+    // Same as -Dapis (resp. -Dmodels) with the swagger-codegen cli: nothing else gets generated, within the selection if any
+    private Map<String, String> generatorProperties(final Scope scope) {
+        if (scope == Scope.ALL) {
+            return generatorProperties;
+        }
+        final String key = scope == Scope.APIS ? KillbillGenerator.APIS : KillbillGenerator.MODELS;
+        final String selection;
+        if (generatorProperties.isEmpty()) {
+            selection = "true";
+        } else {
+            selection = generatorProperties.containsKey(key) ? generatorProperties.get(key) : "false";
+        }
+        final Map<String, String> result = new HashMap<>();
+        result.put(key, selection);
+        return result;
+    }
+
+    private String parse() {
+        final long start = System.nanoTime();
+        final Swagger result = KillbillCodegen.parse(KillbillCodegen.newConfig(lang, inputSpec, output, templateDir), inputSpec);
+        if (result == null) {
+            LOGGER.warn("Cannot parse {}, waiting for the next change", inputSpec);
+            return null;
+        }
+        try {
+            final String json = Json.mapper().writeValueAsString(result);
+            LOGGER.info("Parsed {} in {} ms", inputSpec, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return json;
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collect(final WatchService watcher, final Map<WatchKey, Path> directories, final WatchKey key, final Set<Path> changed) throws IOException {
+        final Path directory = directories.get(key);
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                continue;
+            }
+            final Path path = directory.resolve((Path) event.context());
+            changed.add(path);
+            // New template sub directory
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                registerAll(watcher, directories, path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private static void registerAll(final WatchService watcher, final Map<WatchKey, Path> directories, final Path root) throws IOException {
+        final List<Path> subDirectories;
+        try (Stream<Path> paths = Files.walk(root)) {
+            subDirectories = paths.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        for (final Path directory : subDirectories) {
+            register(watcher, directories, directory);
+        }
+    }
+
+    private static void register(final WatchService watcher, final Map<WatchKey, Path> directories, final Path directory) throws IOException {
+        final WatchKey key = directory.register(watcher,
+                                                StandardWatchEventKinds.ENTRY_CREATE,
+                                                StandardWatchEventKinds.ENTRY_MODIFY,
+                                                StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, directory);
+    }
+
+    // Skip editor swap, backup and temporary files
+    private static boolean isTemplate(final Path path) {
+        final String name = path.getFileName().toString();
+        if (name.startsWith(".") || name.endsWith("~")) {
+            return false;
+        }
+        return name.endsWith(".mustache") || Files.isRegularFile(path);
+    }
+}
@@ -0,0 +1,449 @@
+package org.killbill.billing.codegen;
+
+import io.swagger.codegen.CodegenModel;
+import io.swagger.codegen.CodegenOperation;
+import io.swagger.codegen.DefaultGenerator;
+import io.swagger.models.ComposedModel;
+import io.swagger.models.Model;
+import io.swagger.models.RefModel;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.killbill.billing.codegen.languages.SpecFingerprints;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * DefaultGenerator that processes and renders the models and the api tags on a fork/join pool.
+ * <p>
+ * Only the steps which depend on the order of the models and apis (postProcessAllModels, allModels and
+ * allOperations bookkeeping) remain sequential, so the output is identical to the one of DefaultGenerator.
+ * This requires the CodegenConfig to be safe for concurrent processing of different models and tags, which is
+ * the case for our generators as long as they do not keep mutable state across models or tags.
+ * <p>
+ * The models and apis to generate are selected with the "models" and "apis" generator properties (see
+ * {@link #setGeneratorPropertyDefault(String, String)}), which take either a switch (true or false) or the comma separated
+ * names to generate, like -Dmodels and -Dapis with the swagger-codegen cli.
+ * <p>
+ * Api and model templates are compiled once, see {@link TemplateCache}.
+ */
+public class KillbillGenerator extends DefaultGenerator {
+
+    public static final String MODELS = "models";
+    public static final String APIS = "apis";
+
+    private final ForkJoinPool pool;
+    // Same as the (private) generator property defaults of DefaultGenerator
+    private final Map<String, String> generatorProperties = new HashMap<>();
+    private final TemplateCache templates;
+
+    public KillbillGenerator(final ForkJoinPool pool) {
+        this(pool, new TemplateCache());
+    }
+
+    public KillbillGenerator(final ForkJoinPool pool, final TemplateCache templates) {
+        this.pool = pool;
+        this.templates = templates;
+    }
+
+    // Same as DefaultGenerator#processTemplateToFile, with the compiled template coming from the cache
+    @Override
+    protected File processTemplateToFile(final Map<String, Object> templateData, final String templateName, final String outputFilename) throws IOException {
+        final String adjustedOutputFilename = outputFilename.replaceAll("//", "/").replace('/', File.separatorChar);
+        if (!ignoreProcessor.allowsFile(new File(adjustedOutputFilename))) {
+            LOGGER.info("Skipped generation of " + adjustedOutputFilename + " due to rule in .swagger-codegen-ignore");
+            return null;
+        }
+        final String templateFile = getFullTemplateFile(config, templateName);
+        final Template template = templates.get(templateFile, new Supplier<Template>() {
+            @Override
+            public Template get() {
+                return compile(templateFile);
+            }
+        });
+        writeToFile(adjustedOutputFilename, template.execute(templateData));
+        return new File(adjustedOutputFilename);
+    }
+
+    private Template compile(final String templateFile) {
+        final Mustache.Compiler compiler = config.processCompiler(Mustache.compiler());
+        return compiler.withLoader(new Mustache.TemplateLoader() {
+            @Override
+            public Reader getTemplate(final String name) {
+                return getTemplateReader(getFullTemplateFile(config, name + ".mustache"));
+            }
+        }).defaultValue("").compile(readTemplate(templateFile));
+    }
+
+    @Override
+    public void setGeneratorPropertyDefault(final String key, final String value) {
+        super.setGeneratorPropertyDefault(key, value);
+        generatorProperties.put(key, value);
+    }
+
+    // A list of names turns the switch on
+    @Override
+    protected Boolean getGeneratorPropertyDefaultSwitch(final String key, final Boolean defaultValue) {
+        return getSelection(key) != null ? Boolean.TRUE : super.getGeneratorPropertyDefaultSwitch(key, defaultValue);
+    }
+
+    /**
+     * In incremental mode, leaves the files whose content is unchanged as they are (e.g the supporting files, which are not
+     * fingerprinted), so that their mtime is preserved and downstream builds stay incremental.
+     */
+    @Override
+    public File writeToFile(final String filename, final String contents) throws IOException {
+        if (SpecFingerprints.isEnabled()) {
+            final File file = new File(filename);
+            final byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+            if (file.isFile() && file.length() == bytes.length && Arrays.equals(Files.readAllBytes(file.toPath()), bytes)) {
+                return file;
+            }
+        }
+        return super.writeToFile(filename, contents);
+    }
+
+    @Override
+    protected void generateModels(final List<File> files, final List<Object> allModels) {
+        if (!isGenerateModels) {
+            return;
+        }
+
+        final Map<String, Model> definitions = swagger.getDefinitions();
+        if (definitions == null) {
+            return;
+        }
+
+        Set<String> modelKeys = definitions.keySet();
+        final Set<String> modelNames = getSelection(MODELS);
+        if (modelNames != null) {
+            modelKeys = new HashSet<>(modelKeys);
+            modelKeys.retainAll(modelNames);
+        }
+
+        // Process the models in parallel
+        final List<String> names = new ArrayList<>();
+        final List<Callable<Map<String, Object>>> processing = new ArrayList<>();
+        for (final String name : modelKeys) {
+            if (!config.getIgnoreImportMapping() && config.importMapping().containsKey(name)) {
+                LOGGER.info("Model " + name + " not imported due to import mapping");
+                continue;
+            }
+            names.add(name);
+            processing.add(new Callable<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call() {
+                    try {
+                        final Map<String, Model> modelMap = new HashMap<>();
+                        modelMap.put(name, definitions.get(name));
+                        final Map<String, Object> models = processModels(config, modelMap, definitions);
+                        if (models != null) {
+                            models.put("classname", config.toModelName(name));
+                            models.putAll(config.additionalProperties());
+                        }
+                        return models;
+                    } catch (final Exception e) {
+                        final String message = "Could not process model '" + name + "'. Please make sure that your schema is correct!";
+                        LOGGER.error(message, e);
+                        throw new RuntimeException(message, e);
+                    }
+                }
+            });
+        }
+        final List<Map<String, Object>> processed = invokeAll(pool, processing);
+
+        Map<String, Object> allProcessedModels = new TreeMap<>(new ModelComparator(definitions));
+        for (int i = 0; i < names.size(); i++) {
+            if (processed.get(i) != null) {
+                allProcessedModels.put(names.get(i), processed.get(i));
+            }
+        }
+        allProcessedModels = config.postProcessAllModels(allProcessedModels);
+
+        // Bookkeeping in model order, then render in parallel
+        final boolean skipAlias = config.getSkipAliasGeneration() != null && config.getSkipAliasGeneration();
+        final List<Callable<List<File>>> rendering = new ArrayList<>();
+        for (final String modelName : allProcessedModels.keySet()) {
+            final Map<String, Object> models = (Map<String, Object>) allProcessedModels.get(modelName);
+            models.put("modelPackage", config.modelPackage());
+            if (!config.getIgnoreImportMapping() && config.importMapping().containsKey(modelName)) {
+                continue;
+            }
+            final Map<String, Object> modelTemplate = (Map<String, Object>) ((List<Object>) models.get("models")).get(0);
+            if (skipAlias && modelTemplate != null && modelTemplate.containsKey("model") && ((CodegenModel) modelTemplate.get("model")).isAlias) {
+                continue;
+            }
+            allModels.add(modelTemplate);
+            rendering.add(new Callable<List<File>>() {
+                @Override
+                public List<File> call() {
+                    try {
+                        final List<File> written = new ArrayList<>();
+                        for (final String templateName : config.modelTemplateFiles().keySet()) {
+                            final String filename = config.modelFilename(templateName, modelName);
+                            if (!config.shouldOverwrite(filename)) {
+                                LOGGER.info("Skipped overwriting " + filename);
+                                continue;
+                            }
+                            final File file = processTemplateToFile(models, templateName, filename);
+                            if (file != null) {
+                                written.add(file);
+                            }
+                        }
+                        if (isGenerateModelTests) {
+                            generateModelTests(written, models, modelName);
+                        }
+                        if (isGenerateModelDocumentation) {
+                            generateModelDocumentation(written, models, modelName);
+                        }
+                        return written;
+                    } catch (final Exception e) {
+                        throw new RuntimeException("Could not generate model '" + modelName + "'", e);
+                    }
+                }
+            });
+        }
+        for (final List<File> written : invokeAll(pool, rendering)) {
+            files.addAll(written);
+        }
+    }
+
+    @Override
+    protected void generateApis(final List<File> files, final List<Object> allOperations, final List<Object> allModels) {
+        if (!isGenerateApis) {
+            return;
+        }
+
+        Map<String, List<CodegenOperation>> paths = processPaths(swagger.getPaths());
+        final Set<String> apiNames = getSelection(APIS);
+        if (apiNames != null) {
+            paths = new TreeMap<>(paths);
+            paths.keySet().retainAll(apiNames);
+        }
+
+        // Process the tags in parallel
+        final List<String> tags = new ArrayList<>(paths.keySet());
+        final List<Callable<Map<String, Object>>> processing = new ArrayList<>();
+        for (final String tag : tags) {
+            final List<CodegenOperation> ops = paths.get(tag);
+            processing.add(new Callable<Map<String, Object>>() {
+                @Override
+                public Map<String, Object> call() {
+                    try {
+                        return processTag(tag, ops, allModels);
+                    } catch (final Exception e) {
+                        throw new RuntimeException("Could not generate api file for '" + tag + "'", e);
+                    }
+                }
+            });
+        }
+        final List<Map<String, Object>> operations = invokeAll(pool, processing);
+
+        // Bookkeeping in tag order, then render in parallel
+        final List<Callable<List<File>>> rendering = new ArrayList<>();
+        for (int t = 0; t < tags.size(); t++) {
+            final String tag = tags.get(t);
+            final Map<String, Object> operation = operations.get(t);
+            allOperations.add(new HashMap<>(operation));
+            for (int i = 0; i < allOperations.size() - 1; i++) {
+                ((Map<String, Object>) allOperations.get(i)).put("hasMore", "true");
+            }
+            rendering.add(new Callable<List<File>>() {
+                @Override
+                public List<File> call() {
+                    try {
+                        return renderTag(tag, operation);
+                    } catch (final Exception e) {
+                        throw new RuntimeException("Could not generate api file for '" + tag + "'", e);
+                    }
+                }
+            });
+        }
+        for (final List<File> written : invokeAll(pool, rendering)) {
+            files.addAll(written);
+        }
+    }
+
+    private Map<String, Object> processTag(final String tag, final List<CodegenOperation> ops, final List<Object> allModels) {
+        Collections.sort(ops, new Comparator<CodegenOperation>() {
+            @Override
+            public int compare(final CodegenOperation one, final CodegenOperation another) {
+                return ObjectUtils.compare(one.operationId, another.operationId);
+            }
+        });
+        final Map<String, Object> operation = processOperations(config, tag, ops, allModels);
+
+        operation.put("hostWithoutBasePath", getHostWithoutBasePath());
+        operation.put("basePath", basePath);
+        operation.put("basePathWithoutHost", basePathWithoutHost);
+        operation.put("contextPath", contextPath);
+        operation.put("baseName", tag);
+        operation.put("apiPackage", config.apiPackage());
+        operation.put("modelPackage", config.modelPackage());
+        operation.putAll(config.additionalProperties());
+        operation.put("classname", config.toApiName(tag));
+        operation.put("classVarName", config.toApiVarName(tag));
+        operation.put("importPath", config.toApiImport(tag));
+        operation.put("classFilename", config.toApiFilename(tag));
+
+        if (!config.vendorExtensions().isEmpty()) {
+            operation.put("vendorExtensions", config.vendorExtensions());
+        }
+
+        boolean sortParamsByRequiredFlag = true;
+        if (config.additionalProperties().containsKey("sortParamsByRequiredFlag")) {
+            sortParamsByRequiredFlag = Boolean.valueOf(config.additionalProperties().get("sortParamsByRequiredFlag").toString());
+        }
+        operation.put("sortParamsByRequiredFlag", sortParamsByRequiredFlag);
+
+        processMimeTypes(swagger.getConsumes(), operation, "consumes");
+        processMimeTypes(swagger.getProduces(), operation, "produces");
+        return operation;
+    }
+
+    private List<File> renderTag(final String tag, final Map<String, Object> operation) throws Exception {
+        final List<File> written = new ArrayList<>();
+        for (final String templateName : config.apiTemplateFiles().keySet()) {
+            final String filename = config.apiFilename(templateName, tag);
+            if (!config.shouldOverwrite(filename) && new File(filename).exists()) {
+                LOGGER.info("Skipped overwriting " + filename);
+                continue;
+            }
+            addIfNotNull(written, processTemplateToFile(operation, templateName, filename));
+        }
+        if (isGenerateApiTests) {
+            for (final String templateName : config.apiTestTemplateFiles().keySet()) {
+                final String filename = config.apiTestFilename(templateName, tag);
+                if (new File(filename).exists()) {
+                    LOGGER.info("File exists. Skipped overwriting " + filename);
+                    continue;
+                }
+                addIfNotNull(written, processTemplateToFile(operation, templateName, filename));
+            }
+        }
+        if (isGenerateApiDocumentation) {
+            for (final String templateName : config.apiDocTemplateFiles().keySet()) {
+                final String filename = config.apiDocFilename(templateName, tag);
+                if (!config.shouldOverwrite(filename) && new File(filename).exists()) {
+                    LOGGER.info("Skipped overwriting " + filename);
+                    continue;
+                }
+                addIfNotNull(written, processTemplateToFile(operation, templateName, filename));
+            }
+        }
+        return written;
+    }
+
+    // Names of the models (resp. apis) to generate, null when the property is not set or is a switch
+    private Set<String> getSelection(final String key) {
+        final String value = generatorProperties.get(key);
+        if (value == null || value.isEmpty() || "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return null;
+        }
+        return new HashSet<>(Arrays.asList(value.split(",")));
+    }
+
+    private static void addIfNotNull(final List<File> files, final File file) {
+        if (file != null) {
+            files.add(file);
+        }
+    }
+
+    // Same as the private DefaultGenerator#getHostWithoutBasePath
+    private String getHostWithoutBasePath() {
+        final StringBuilder hostBuilder = new StringBuilder();
+        hostBuilder.append(getScheme());
+        hostBuilder.append("://");
+        if (!StringUtils.isEmpty(swagger.getHost())) {
+            hostBuilder.append(swagger.getHost());
+        } else {
+            hostBuilder.append("localhost");
+        }
+        return hostBuilder.toString();
+    }
+
+    // Runs all the tasks on the pool, and returns their results in order
+    static <T> List<T> invokeAll(final ForkJoinPool pool, final List<Callable<T>> tasks) {
+        final List<T> result = new ArrayList<>(tasks.size());
+        for (final Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                result.add(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return result;
+    }
+
+    // Same ordering as DefaultGenerator: parents first, then by model name
+    private class ModelComparator implements Comparator<String> {
+
+        private final Map<String, Model> definitions;
+
+        private ModelComparator(final Map<String, Model> definitions) {
+            this.definitions = definitions;
+        }
+
+        @Override
+        public int compare(final String o1, final String o2) {
+            final int model1InheritanceDepth = getInheritanceDepth(definitions.get(o1));
+            final int model2InheritanceDepth = getInheritanceDepth(definitions.get(o2));
+            if (model1InheritanceDepth == model2InheritanceDepth) {
+                return ObjectUtils.compare(config.toModelName(o1), config.toModelName(o2));
+            }
+            return model1InheritanceDepth > model2InheritanceDepth ? 1 : -1;
+        }
+
+        private int getInheritanceDepth(final Model model) {
+            int inheritanceDepth = 0;
+            Model parent = getParent(model);
+            while (parent != null) {
+                inheritanceDepth++;
+                parent = getParent(parent);
+            }
+            return inheritanceDepth;
+        }
+
+        private Model getParent(final Model model) {
+            if (model instanceof ComposedModel) {
+                final Model parent = ((ComposedModel) model).getParent();
+                if (parent == null && !((ComposedModel) model).getInterfaces().isEmpty()) {
+                    final RefModel interf = ((ComposedModel) model).getInterfaces().get(0);
+                    return definitions.get(interf.getSimpleRef());
+                }
+                if (parent != null) {
+                    return definitions.get(parent.getReference());
+                }
+            }
+            return null;
+        }
+    }
+}
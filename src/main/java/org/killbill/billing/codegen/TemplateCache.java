@@ -0,0 +1,34 @@
+package org.killbill.billing.codegen;
+
+import com.samskivert.mustache.Template;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Compiled mustache templates, by template file.
+ * <p>
+ * DefaultGenerator compiles the template (and its partials) again for every file it writes, while a compiled template
+ * can be executed any number of times, concurrently. The cache can be shared by several generation runs (e.g watch mode),
+ * in which case it needs to be cleared when a template changes on disk: partials are inlined at compile time.
+ */
+public class TemplateCache {
+
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<>();
+
+    public Template get(final String templateFile, final Supplier<Template> compiler) {
+        final Template template = templates.get(templateFile);
+        if (template != null) {
+            return template;
+        }
+        // Compiling twice in case of a race is harmless, and does not block other templates like computeIfAbsent would
+        final Template compiled = compiler.get();
+        final Template previous = templates.putIfAbsent(templateFile, compiled);
+        return previous != null ? previous : compiled;
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+}
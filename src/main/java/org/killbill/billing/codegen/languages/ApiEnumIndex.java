@@ -0,0 +1,220 @@
+package org.killbill.billing.codegen.languages;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lookup structure for the enums of the Kill Bill API jar (-DkbApiJar).
+ * <p>
+ * The swagger schema only gives us the enum values, so generators need to find the matching API enum from its first value.
+ * The index is built once per jar, and persisted on disk keyed by the jar content hash so subsequent runs against
+ * the same API jar do not need to scan it again. It is also kept in memory, for long running processes creating
+ * several generators (e.g watch mode).
+ */
+public class ApiEnumIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ApiEnumIndex.class);
+
+    // Override location of the on-disk cache, e.g -DkbApiCacheDir=/tmp/kb-enums
+    public static final String CACHE_DIR_PROPERTY = "kbApiCacheDir";
+
+    private static final String DEFAULT_CACHE_DIR = ".killbill-swagger-coden";
+    private static final String CACHE_FILE_PREFIX = "api-enums-";
+    // Bump when the cache format changes
+    private static final String CACHE_FORMAT_VERSION = "2";
+
+    // Indexes already loaded by this JVM, by jar location, size and modification time
+    private static final Map<String, ApiEnumIndex> LOADED = new ConcurrentHashMap<>();
+
+    private final Map<String, ApiEnum> enumsByName;
+    private final Map<String, ApiEnum> enumsByFirstValue;
+
+    public ApiEnumIndex(final Collection<ApiEnum> apiEnums) {
+        final Map<String, ApiEnum> byName = new LinkedHashMap<>();
+        final Map<String, ApiEnum> byFirstValue = new HashMap<>();
+        for (final ApiEnum apiEnum : apiEnums) {
+            byName.put(apiEnum.getName(), apiEnum);
+            // Several enums may share the same first value, keep the first one like the previous linear scan did
+            if (!apiEnum.getConstants().isEmpty() && !byFirstValue.containsKey(apiEnum.getConstants().get(0))) {
+                byFirstValue.put(apiEnum.getConstants().get(0), apiEnum);
+            }
+        }
+        this.enumsByName = Collections.unmodifiableMap(byName);
+        this.enumsByFirstValue = Collections.unmodifiableMap(byFirstValue);
+    }
+
+    public static ApiEnumIndex forApiJar(final String apiJar) throws IOException {
+        final File jar = new File(apiJar).getAbsoluteFile();
+        final String key = jar.getPath() + ':' + jar.length() + ':' + jar.lastModified();
+        ApiEnumIndex result = LOADED.get(key);
+        if (result == null) {
+            result = load(apiJar);
+            LOADED.put(key, result);
+        }
+        return result;
+    }
+
+    // Same as forApiJar, bypassing the in-memory index
+    public static ApiEnumIndex load(final String apiJar) throws IOException {
+        final String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+        return load(apiJar, cacheDir != null ? new File(cacheDir) : new File(System.getProperty("user.home"), DEFAULT_CACHE_DIR));
+    }
+
+    static ApiEnumIndex load(final String apiJar, final File cacheDir) throws IOException {
+        final File cacheFile = getCacheFile(apiJar, cacheDir);
+        if (cacheFile.isFile()) {
+            try {
+                return new ApiEnumIndex(readCache(cacheFile));
+            } catch (final IOException e) {
+                LOGGER.warn("Ignoring corrupted enum cache {}: {}", cacheFile, e.getMessage());
+            }
+        }
+
+        final List<ApiEnum> apiEnums = ClassUtil.findAPIEnumConstants(apiJar);
+        try {
+            writeCache(cacheFile, apiEnums);
+        } catch (final IOException e) {
+            // Cache is only an optimization
+            LOGGER.warn("Failed to write enum cache {}: {}", cacheFile, e.getMessage());
+        }
+        return new ApiEnumIndex(apiEnums);
+    }
+
+    public Collection<ApiEnum> getEnums() {
+        return enumsByName.values();
+    }
+
+    public ApiEnum findByFirstValue(final String firstEnumValue) {
+        return enumsByFirstValue.get(firstEnumValue);
+    }
+
+    static File getCacheFile(final String apiJar, final File cacheDir) throws IOException {
+        return new File(cacheDir, CACHE_FILE_PREFIX + sha256(new File(apiJar)) + ".tsv");
+    }
+
+    private static String sha256(final File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final InputStream in = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        digest.update(CACHE_FORMAT_VERSION.getBytes(StandardCharsets.UTF_8));
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    // One line per enum: <simpleName> TAB <className> TAB <constant1,constant2,...>
+    private static List<ApiEnum> readCache(final File cacheFile) throws IOException {
+        final List<ApiEnum> result = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final String[] parts = line.split("\t", -1);
+                if (parts.length != 3) {
+                    throw new IOException("Invalid line " + line);
+                }
+                final List<String> constants = parts[2].isEmpty() ? Collections.<String>emptyList() : Arrays.asList(parts[2].split(","));
+                result.add(new ApiEnum(parts[0], parts[1], constants));
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    private static void writeCache(final File cacheFile, final List<ApiEnum> apiEnums) throws IOException {
+        final File dir = cacheFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        // Write to a temporary file first so concurrent runs never see a partial cache
+        final File tmp = File.createTempFile(CACHE_FILE_PREFIX, ".tmp", dir);
+        final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8));
+        try {
+            for (final ApiEnum apiEnum : apiEnums) {
+                writer.write(apiEnum.getName());
+                writer.write('\t');
+                writer.write(apiEnum.getClassName());
+                writer.write('\t');
+                writer.write(String.join(",", apiEnum.getConstants()));
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+        if (!tmp.renameTo(cacheFile)) {
+            tmp.delete();
+        }
+    }
+
+    public static class ApiEnum {
+
+        private final String name;
+        private final String className;
+        private final List<String> constants;
+
+        public ApiEnum(final String name, final String className, final List<String> constants) {
+            this.name = name;
+            this.className = className;
+            this.constants = Collections.unmodifiableList(new ArrayList<>(constants));
+        }
+
+        // Simple name, as referenced by the generated code
+        public String getName() {
+            return name;
+        }
+
+        // Binary name, e.g org.killbill.billing.catalog.api.Foo$Bar
+        public String getClassName() {
+            return className;
+        }
+
+        public String getImportName() {
+            return className.replaceAll("\\$", ".");
+        }
+
+        public List<String> getConstants() {
+            return constants;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.killbill.billing.codegen.languages;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the enums of a jar by reading the class files directly, without loading (or linking) any class.
+ * <p>
+ * Only the class file header is parsed: constant pool, access flags, super class and fields. A class is
+ * an enum when it has the ACC_ENUM flag and directly extends java.lang.Enum (constant specific bodies are
+ * compiled into ACC_ENUM subclasses that we need to skip, like Class#isEnum does), and its constants are the fields
+ * flagged ACC_ENUM, in declaration order.
+ */
+public class ClassFileEnumScanner {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int ACC_ENUM = 0x4000;
+    private static final String JAVA_LANG_ENUM = "java/lang/Enum";
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Scans all the class files of the jar, in parallel.
+     *
+     * @return the enums found, in jar entry order
+     */
+    public static List<ApiEnumIndex.ApiEnum> scan(final String jar) throws IOException {
+        final JarFile module = new JarFile(jar);
+        try {
+            return module.stream()
+                         .parallel()
+                         .filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".class"))
+                         .map(entry -> scanEntry(module, entry))
+                         .filter(Objects::nonNull)
+                         .collect(Collectors.toList());
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            module.close();
+        }
+    }
+
+    private static ApiEnumIndex.ApiEnum scanEntry(final JarFile module, final JarEntry entry) {
+        try {
+            final InputStream in = module.getInputStream(entry);
+            try {
+                return parse(readFully(in, entry.getSize()));
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to read " + entry.getName(), e);
+        }
+    }
+
+    /**
+     * @return the enum described by this class file, or null if the class is not an enum
+     */
+    static ApiEnumIndex.ApiEnum parse(final byte[] classFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor_version
+        in.readUnsignedShort(); // major_version
+
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8 = new String[constantPoolCount];
+        final int[] classNameIndex = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndex[i] = in.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    in.skipBytes(2);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    in.skipBytes(3);
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    in.skipBytes(4);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    // 8 bytes constants take two entries in the pool
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        final int accessFlags = in.readUnsignedShort();
+        final int thisClass = in.readUnsignedShort();
+        final int superClass = in.readUnsignedShort();
+        if ((accessFlags & ACC_ENUM) == 0 || superClass == 0 || !JAVA_LANG_ENUM.equals(utf8[classNameIndex[superClass]])) {
+            return null;
+        }
+
+        final int interfacesCount = in.readUnsignedShort();
+        in.skipBytes(2 * interfacesCount);
+
+        final List<String> constants = new ArrayList<>();
+        final int fieldsCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldsCount; i++) {
+            final int fieldAccessFlags = in.readUnsignedShort();
+            final int nameIndex = in.readUnsignedShort();
+            in.readUnsignedShort(); // descriptor_index
+            final int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                in.readUnsignedShort(); // attribute_name_index
+                in.skipBytes(in.readInt());
+            }
+            if ((fieldAccessFlags & ACC_ENUM) != 0) {
+                constants.add(utf8[nameIndex]);
+            }
+        }
+
+        final String internalName = utf8[classNameIndex[thisClass]];
+        return new ApiEnumIndex.ApiEnum(toSimpleName(internalName), internalName.replace('/', '.'), constants);
+    }
+
+    // Equivalent of Class#getSimpleName for the (named) enums we care about, e.g org/killbill/Foo$Bar -> Bar
+    private static String toSimpleName(final String internalName) {
+        final String name = internalName.substring(internalName.lastIndexOf('/') + 1);
+        return name.substring(name.lastIndexOf('$') + 1);
+    }
+
+    private static byte[] readFully(final InputStream in, final long sizeHint) throws IOException {
+        byte[] buffer = new byte[sizeHint > 0 ? (int) sizeHint : 4096];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                final int next = in.read();
+                if (next == -1) {
+                    return buffer;
+                }
+                final byte[] larger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, larger, 0, length);
+                buffer = larger;
+                buffer[length++] = (byte) next;
+            }
+            final int read = in.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        final byte[] result = new byte[length];
+        System.arraycopy(buffer, 0, result, 0, length);
+        return result;
+    }
+}
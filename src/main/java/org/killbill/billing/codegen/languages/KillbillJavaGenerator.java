@@ -1,10 +1,11 @@
 package org.killbill.billing.codegen.languages;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
 import io.swagger.codegen.*;
 import io.swagger.codegen.languages.AbstractJavaCodegen;
+import io.swagger.models.Model;
 import io.swagger.models.Swagger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -12,6 +13,9 @@ import java.util.*;
 
 public class KillbillJavaGenerator extends AbstractJavaCodegen implements CodegenConfig {
 
+    // The one of AbstractJavaCodegen is private
+    private static final Logger LOGGER = LoggerFactory.getLogger(KillbillJavaGenerator.class);
+
 
     private static final String NAME = "killbill-java";
 
@@ -29,9 +33,9 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
 
     private static final String DATE_LIBRARY_JODA = "joda";
 
-    // Keep track of all visited Reference Models
-    private static Set<String> ALL_MODELS = new HashSet<>();
-    
+    // -DcompactModels=true: models with shared empty containers and the repeated names (catalog, ...) interned
+    private static final String COMPACT_MODELS = "compactModels";
+
     private static String QUERY_REQUESTED_DT = "requestedDate";
     private static String QUERY_ENTITLEMENT_REQUESTED_DT = "entitlementDate";
     private static String QUERY_BILLING_REQUESTED_DT = "billingDate";
@@ -74,22 +78,29 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         return "Generates a killbill-java client library.";
     }
 
-    private final Map<String, Class> apiEnums;
+    private final String kbApiJar;
+    private final boolean compactModels;
+    private final ApiEnumIndex apiEnums;
+    private SpecFingerprints fingerprints;
+
+    // Names of all the Reference Models, built from the spec before any model or operation gets processed
+    private Set<String> allModels = Collections.emptySet();
+
+    private final ProcessingCache processingCache = new ProcessingCache();
 
     public KillbillJavaGenerator() {
         super();
         templateDir = "killbill-java";
         embeddedTemplateDir = "killbill-java";
 
-        final String kbApiJar = System.getProperty("kbApiJar");
+        kbApiJar = System.getProperty("kbApiJar");
         if (kbApiJar == null) {
             throw new IllegalArgumentException("Need to specify KB api version: -DkbApiJar=<location of the jar>");
         }
+        compactModels = Boolean.parseBoolean(System.getProperty(COMPACT_MODELS));
 
         try {
-            apiEnums = ClassUtil.findAPIEnum(kbApiJar);
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
+            apiEnums = ApiEnumIndex.forApiJar(kbApiJar);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -98,6 +109,9 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
     @Override
     public void processOpts() {
         additionalProperties.put(DATE_LIBRARY, DATE_LIBRARY_JODA);
+        if (compactModels) {
+            additionalProperties.put(COMPACT_MODELS, true);
+        }
 
         super.processOpts();
 
@@ -139,28 +153,86 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         importMapping.put("Entity", "org.killbill.billing.client.model.gen");
 
         // Kill Bill API
-        for (final String key : apiEnums.keySet()) {
-            importMapping.put(key, apiEnums.get(key).getName().replaceAll("\\$", "."));
+        for (final ApiEnumIndex.ApiEnum apiEnum : apiEnums.getEnums()) {
+            importMapping.put(apiEnum.getName(), apiEnum.getImportName());
         }
 
         instantiationTypes.put("List", "java.util.ArrayList");
         instantiationTypes.put("Map", "java.util.HashMap");
+
+        // Request setup shared by all the apis (query parameters, request options)
+        supportingFiles.add(new SupportingFile("ApiRequests.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "ApiRequests.java"));
+        // Auto-pagination of the ...Stream variants
+        supportingFiles.add(new SupportingFile("Pagination.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "Pagination.java"));
+        // Opt-in cache of the configuration reads (catalog, tenant config, ...)
+        supportingFiles.add(new SupportingFile("ResponseCache.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "ResponseCache.java"));
+        // Opt-in merging of the identical GET requests in flight
+        supportingFiles.add(new SupportingFile("RequestCoalescer.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "RequestCoalescer.java"));
+        // How the apis send their requests, given their ApiOptions, and the responses read once (cached, shared, measured)
+        supportingFiles.add(new SupportingFile("CallPolicy.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "CallPolicy.java"));
+        supportingFiles.add(new SupportingFile("BufferedResponse.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "BufferedResponse.java"));
+        // How the ...Bulk methods run an operation for many ids
+        supportingFiles.add(new SupportingFile("BulkRunner.mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), "BulkRunner.java"));
+        // Settings of the apis, the listener of their operations (metrics), the limiter, the hedger and the batcher of their requests, the results of the ...Bulk methods
+        for (final String name : Arrays.asList("ApiOptions", "OperationListener", "OperationMetrics", "LatencyHistogram", "OperationHistograms", "JfrOperationListener", "ConcurrencyLimiter", "RequestHedger", "BulkResult", "WriteBatcher", "KillBillHttpClients")) {
+            supportingFiles.add(new SupportingFile(name + ".mustache", (sourceFolder + "/" + apiPackage).replace(".", "/"), name + ".java"));
+        }
+
+        // Jackson serializer and deserializer of each model (<Model>Json.java), registered by KillBillModelModule
+        modelTemplateFiles.put("model_json.mustache", "Json.java");
+        supportingFiles.add(new SupportingFile("ModelJson.mustache", (sourceFolder + "/" + modelPackage).replace(".", "/"), "ModelJson.java"));
+        supportingFiles.add(new SupportingFile("KillBillModelModule.mustache", (sourceFolder + "/" + modelPackage).replace(".", "/"), "KillBillModelModule.java"));
     }
 
     @Override
     public void preprocessSwagger(Swagger swagger) {
+        SpecNormalizer.normalize(swagger);
+        allModels = buildModelRegistry(swagger);
+        if (SpecFingerprints.isEnabled()) {
+            fingerprints = new SpecFingerprints(this).withInputFile(kbApiJar).withOption(COMPACT_MODELS, compactModels);
+            fingerprints.compute(swagger);
+        }
     }
 
+    @Override
+    public void processSwagger(Swagger swagger) {
+        if (fingerprints != null) {
+            fingerprints.deleteOrphans();
+            fingerprints.writeManifest();
+        }
+    }
 
-    private  String findEnumType(final String firstEnumValue) {
-        for (final String key : apiEnums.keySet()) {
-            Class claz = apiEnums.get(key);
-            if (EnumSet.allOf(claz).iterator().next().toString().equals(firstEnumValue)) {
-                return key;
+    @Override
+    public boolean shouldOverwrite(String filename) {
+        if (fingerprints != null && fingerprints.isUpToDate(filename)) {
+            return false;
+        }
+        return super.shouldOverwrite(filename);
+    }
+
+
+    // Same set of models DefaultGenerator will process: all definitions, except the ones mapped to existing classes (e.g Entity, API enums)
+    private Set<String> buildModelRegistry(final Swagger swagger) {
+        if (swagger.getDefinitions() == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> result = new HashSet<>();
+        for (final Map.Entry<String, Model> entry : swagger.getDefinitions().entrySet()) {
+            final Map<String, Object> vendorExtensions = entry.getValue().getVendorExtensions();
+            if (importMapping.containsKey(entry.getKey()) || (vendorExtensions != null && vendorExtensions.containsKey("x-codegen-ignore"))) {
+                continue;
             }
+            result.add(entry.getKey());
+        }
+        return Collections.unmodifiableSet(result);
+    }
 
+    private  String findEnumType(final String firstEnumValue) {
+        final ApiEnumIndex.ApiEnum apiEnum = apiEnums.findByFirstValue(firstEnumValue);
+        if (apiEnum == null) {
+            throw new IllegalStateException("Cannot find enum with first value " + firstEnumValue);
         }
-        throw new IllegalStateException("Cannot find enum with first value " + firstEnumValue);
+        return apiEnum.getName();
     }
 
 
@@ -181,6 +253,8 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
                     final CodegenProperty p = it.next();
                     if (p.name.equals("history")) {
                         p.vendorExtensions.put("x-entity-generic", true);
+                        p.vendorExtensions.put("x-json-lazy", true);
+                        m.vendorExtensions.put("x-json-lazy", true);
                         m.imports.remove("Entity");
                         break;
                     }
@@ -193,17 +267,76 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
                         m.parent = "KillBillObject";
                         p.vendorExtensions.put("x-ignore-for-identity", true);
                         m.vendorExtensions.put("x-ignore-super-for-identity", true);
+                        p.vendorExtensions.put("x-json-lazy", true);
+                        m.vendorExtensions.put("x-json-lazy", true);
                         break;
                     }
                 }
             }
 
-           ALL_MODELS.add(m.name);
+            // Written in the order of Jackson: the (KillBillObject) inherited properties first
+            final List<CodegenProperty> jsonVars = new ArrayList<CodegenProperty>(m.vars.size());
+            int inherited = 0;
+            boolean hasContainers = false;
+            for (final CodegenProperty p : m.vars) {
+                addJsonVendorExtensions(p);
+                hasContainers |= p.isContainer && !p.isInherited;
+                if (p.isInherited) {
+                    jsonVars.add(inherited++, p);
+                } else {
+                    jsonVars.add(p);
+                }
+            }
+            m.vendorExtensions.put("x-json-vars", jsonVars);
+            // Shared empty containers (Collections.emptyList(), ...)
+            if (compactModels && hasContainers) {
+                ((List<Map<String, String>>) objs.get("imports")).add(Collections.singletonMap("import", "java.util.Collections"));
+            }
         }
 
         return objs;
     }
 
+    private static final Map<String, String> JSON_SCALARS = new HashMap<>();
+
+    static {
+        JSON_SCALARS.put("String", "String");
+        JSON_SCALARS.put("UUID", "Uuid");
+        JSON_SCALARS.put("Boolean", "Boolean");
+        JSON_SCALARS.put("Integer", "Integer");
+        JSON_SCALARS.put("Long", "Long");
+        JSON_SCALARS.put("BigDecimal", "BigDecimal");
+    }
+
+    // String properties interned by the compact models: names repeated across many objects (e.g the plan of each subscription)
+    private static final Set<String> INTERNED_PROPERTIES = new HashSet<>(Arrays.asList("productName", "planName", "phaseName", "usageName",
+            "prettyProductName", "prettyPlanName", "prettyPhaseName", "prettyUsageName",
+            "product", "plan", "phase", "priceList", "priceListName",
+            "serviceName", "serviceStateName", "stateName", "tagDefinitionName",
+            "pluginName", "unitType", "unitName", "timeZone", "locale"));
+
+    // How model_json.mustache reads and writes the property: a ModelJson scalar helper, the enum helper, or Jackson (for the given type)
+    private void addJsonVendorExtensions(final CodegenProperty p) {
+        final String constant = underscore(p.name).toUpperCase(Locale.ROOT);
+        // Same property names as Jackson infers from the models (the boolean getters are annotated)
+        p.vendorExtensions.put("x-json-name", p.isBoolean ? p.getter : p.name);
+        p.vendorExtensions.put("x-json-constant", constant);
+        final String scalar = p.isContainer ? null : JSON_SCALARS.get(p.datatypeWithEnum);
+        if (p.vendorExtensions.containsKey("x-entity-generic")) {
+            p.vendorExtensions.put("x-json-type", "Object");
+        } else if (scalar != null) {
+            p.vendorExtensions.put("x-json-scalar", scalar);
+            if (compactModels && "String".equals(scalar) && INTERNED_PROPERTIES.contains(p.name)) {
+                p.vendorExtensions.put("x-json-intern", true);
+            }
+        } else if (p.isEnum && !p.isContainer) {
+            p.vendorExtensions.put("x-json-enum", true);
+        } else {
+            p.vendorExtensions.put("x-json-type", p.datatypeWithEnum);
+        }
+        p.vendorExtensions.put("x-json-type-constant", constant + "_TYPE");
+    }
+
     // Transform CodegenOperation obj into ExtendedCodegenOperation to add properties into mustache maps
     @Override
     public Map<String, Object> postProcessOperations(Map<String, Object> objs) {
@@ -211,15 +344,21 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         final List<CodegenOperation> operations = (List<CodegenOperation>) operationsMap.get("operation");
         final List<ExtendedCodegenOperation> extOperations = new ArrayList<>(operations.size());
         final List<Map<String, String>> imports = (List<Map<String, String>>) objs.get("imports");
+        // Header constants of the api class, one per distinct set of headers
+        final Map<String, HeaderSet> headerSets = new TreeMap<>();
         for (CodegenOperation op : operations) {
-            final ExtendedCodegenOperation ext = new ExtendedCodegenOperation(op);
+            final ExtendedCodegenOperation ext = new ExtendedCodegenOperation(op, allModels);
             extOperations.add(ext);
             addAllImportsIfRequired(ext, imports);
             convertToExtendedCodegenParam(ext, imports);
+            // Before the DateTime variant, which changes the parameters of the operation
+            if (ext.isBodyModelRefContainer) {
+                extOperations.add(iteratorOperation(op, imports));
+            }
             if (shouldAddDateTimeMethod(op)) {
                 addImportIfRequired(imports, "org.joda.time.DateTime");
                 addImportIfRequired(imports, "org.joda.time.LocalDate");
-                final ExtendedCodegenOperation ext2 = new ExtendedCodegenOperation(op);
+                final ExtendedCodegenOperation ext2 = new ExtendedCodegenOperation(op, allModels);
                 addAllImportsIfRequired(ext2, imports);
                 List<CodegenParameter> allParams = ext2.allParams;
                 for (CodegenParameter parameter : allParams) {
@@ -234,10 +373,40 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
                 extOperations.add(ext2);
             }
         }
+        // Operation constants of the api class (the DateTime variants share the one of their operation)
+        final Map<String, OperationDescriptor> operationDescriptors = new TreeMap<>();
+        for (final ExtendedCodegenOperation ext : extOperations) {
+            final HeaderSet headerSet = headerSets.computeIfAbsent(ext.headerSet.name, name -> ext.headerSet);
+            headerSet.hasGzip |= ext.acceptsGzip;
+            operationDescriptors.put(ext.operationDescriptor.name, ext.operationDescriptor);
+        }
+        addImportIfRequired(imports, "java.util.Map");
         operationsMap.put("operation", extOperations);
+        operationsMap.put("headerSets", new ArrayList<>(headerSets.values()));
+        operationsMap.put("operationDescriptors", new ArrayList<>(operationDescriptors.values()));
         return objs;
     }
      
+    // Variant of an operation taking a list, given the elements as an Iterator instead (...FromIterator): Jackson writes them
+    // as a JSON array as they are read, without the list wrapper (InvoiceItems, CustomFields, ...) being built
+    private ExtendedCodegenOperation iteratorOperation(final CodegenOperation op, final List<Map<String, String>> imports) {
+        final ExtendedCodegenOperation ext = new ExtendedCodegenOperation(op, allModels);
+        addAllImportsIfRequired(ext, imports);
+        addImportIfRequired(imports, "java.util.Iterator");
+        convertToExtendedCodegenParam(ext, imports);
+        ext.operationId = op.operationId + "FromIterator";
+        // An Iterator is read once
+        ext.isBulk = false;
+        ext.isBatchable = false;
+        final String dataType = String.format("Iterator<? extends %s>", ext.bodyParam.baseType);
+        for (final CodegenParameter parameter : ext.allParams) {
+            if (parameter.isBodyParam) {
+                parameter.dataType = dataType;
+            }
+        }
+        return ext;
+    }
+
     private void addAllImportsIfRequired(ExtendedCodegenOperation ext, List<Map<String, String>> imports) {
         if (ext.isReturnModelRefContainer) {
             addImportIfRequired(imports, String.format("org.killbill.billing.client.model.%s", ext.returnType));
@@ -246,9 +415,19 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
             addImportIfRequired(imports, String.format("org.killbill.billing.client.model.%s", ext.bodyParam.dataType));
         }
         if (ext.isStream) {
-            addImportIfRequired(imports, "java.io.InputStream");
             addImportIfRequired(imports, "java.io.OutputStream");
-            addImportIfRequired(imports, "java.net.http.HttpResponse");
+            addImportIfRequired(imports, "java.nio.channels.ReadableByteChannel");
+            addImportIfRequired(imports, "java.nio.file.Path");
+        }
+        if (ext.isReturnModelRefContainer && ext.isGet) {
+            addImportIfRequired(imports, "java.util.function.Consumer");
+        }
+        if (ext.isPaginated) {
+            addImportIfRequired(imports, "java.util.stream.Stream");
+        }
+        if (ext.isBulk) {
+            addImportIfRequired(imports, "java.util.Collection");
+            addImportIfRequired(imports, "java.util.List");
         }
         if (ext.isListContainer) {
             addImportIfRequired(imports, "java.util.List");
@@ -267,6 +446,41 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         ext.pathParams = convertToExtendedCodegenParam(ext.pathParams, imports);
         ext.queryParams = convertToExtendedCodegenParam(ext.queryParams, imports);
         ext.formParams = convertToExtendedCodegenParam(ext.formParams, imports);
+        ext.pathSegments = buildPathSegments(ext.path, ext.pathParams);
+    }
+
+    // Splits the path into its literal parts and path params, so the uri can be built without any parsing at runtime
+    private static List<PathSegment> buildPathSegments(final String path, final List<CodegenParameter> pathParams) {
+        final List<PathSegment> result = new ArrayList<>();
+        int start = 0;
+        while (start < path.length()) {
+            final int open = path.indexOf('{', start);
+            if (open < 0) {
+                result.add(PathSegment.literal(path.substring(start)));
+                break;
+            }
+            final int close = path.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalStateException("Invalid path " + path);
+            }
+            if (open > start) {
+                result.add(PathSegment.literal(path.substring(start, open)));
+            }
+            final String name = path.substring(open + 1, close);
+            CodegenParameter param = null;
+            for (final CodegenParameter p : pathParams) {
+                if (name.equals(p.baseName)) {
+                    param = p;
+                    break;
+                }
+            }
+            if (param == null) {
+                throw new IllegalStateException(String.format("Missing path param %s for path %s", name, path));
+            }
+            result.add(PathSegment.param(param));
+            start = close + 1;
+        }
+        return result;
     }
 
 
@@ -278,7 +492,8 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
     }
 
 
-    private List<CodegenParameter> convertToExtendedCodegenParam(final List<CodegenParameter> input, @Nullable final List<Map<String, String>> imports) {
+    // Package private for the benchmarks
+    List<CodegenParameter> convertToExtendedCodegenParam(final List<CodegenParameter> input, @Nullable final List<Map<String, String>> imports) {
         final List<CodegenParameter> result = new ArrayList<>(input.size());
         for (final CodegenParameter p : input) {
             if (p.isEnum) {
@@ -301,7 +516,8 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         return result;
     }
 
-    private void addImportIfRequired(@Nullable final List<Map<String, String>> imports, String newImport) {
+    // Package private for the benchmarks
+    void addImportIfRequired(@Nullable final List<Map<String, String>> imports, String newImport) {
         if (imports == null) {
             return;
         }
@@ -327,7 +543,7 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
                 return property.datatypeWithEnum;
             }
         }
-        System.err.println("Mising _enum for " + property.name);
+        LOGGER.warn("Missing _enum for {}", property.name);
         return sanitizeName(camelize(property.name));
     }
 
@@ -347,6 +563,26 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
         }
     }
 
+    @Override
+    public String toVarName(final String name) {
+        return processingCache.toVarName(name, super::toVarName);
+    }
+
+    @Override
+    public String getterAndSetterCapitalize(final String name) {
+        return processingCache.getterAndSetterCapitalize(name, super::getterAndSetterCapitalize);
+    }
+
+    @Override
+    public String toModelName(final String name) {
+        return processingCache.toModelName(name, super::toModelName);
+    }
+
+    @Override
+    public CodegenModel fromModel(final String name, final Model model, final Map<String, Model> allDefinitions) {
+        return processingCache.fromModel(name, model, allDefinitions, () -> super.fromModel(name, model, allDefinitions));
+    }
+
     @Override
     public String toBooleanGetter(String name) {
         // boolean properties from swagger schema are 'isXXX' and we want to leave the getter method as such.
@@ -364,10 +600,23 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
                 isReturnModelRefContainer,
                 isBodyModelRefContainer,
                 hasNonRequiredDefaultQueryParams,
-                isStream;
-
-
-        private ExtendedCodegenOperation(CodegenOperation o) {
+                isPaginated,
+                isCacheable,
+                isCacheInvalidating,
+                isIdempotent,
+                isStream,
+                isBulk,
+                isBatchable,
+                acceptsGzip;
+
+        public String asyncReturnType;
+        public boolean asyncReturnsVoid;
+        public HeaderSet headerSet;
+        public OperationDescriptor operationDescriptor;
+        public List<PathSegment> pathSegments;
+
+
+        private ExtendedCodegenOperation(CodegenOperation o, Set<String> allModels) {
             super();
 
             this.path = o.path;
@@ -429,7 +678,7 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
             // Body is a List of Reference Model
             this.isBodyModelRefContainer = (isPost || isPut) &&
                     bodyParam != null && bodyParam.isContainer && bodyParam.baseType != null &&
-                    ALL_MODELS.contains(bodyParam.baseType);
+                    allModels.contains(bodyParam.baseType);
             if (isBodyModelRefContainer) {
                 this.bodyParam.dataType = String.format("%ss", this.bodyParam.baseType);
             }
@@ -438,27 +687,118 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
             // Actually here, we need to create special types for primitive types as well:
             // e.g we want to generate: return doGet(uri, DateTimes.class, requestOptions);
             //     and not: return doGet(uri, List<DateTime>.class, requestOptions);
-            // => So we don't restrict with ALL_MODELS.contains(this.returnBaseType);
+            // => So we don't restrict with allModels.contains(this.returnBaseType);
             this.isReturnModelRefContainer = returnContainer != null &&
-                    //ALL_MODELS.contains(this.returnBaseType) &&
+                    //allModels.contains(this.returnBaseType) &&
                     returnContainer.equals("array") && this.returnBaseType != null;
 
             if (isReturnModelRefContainer) {
                 this.returnType = String.format("%ss", this.returnBaseType);
             }
-            this.isStream = produces != null && !produces.isEmpty() && produces.get(0).get("mediaType").equals("application/octet-stream");
-            this.hasNonRequiredDefaultQueryParams = this.queryParams
-                    .stream()
-                    .anyMatch(input -> !input.required && input.defaultValue != null);
-            this.hasNonRequiredDefaultQueryParams = Iterables.any(this.queryParams, new Predicate<CodegenParameter>() {
-                @Override
-                public boolean apply(CodegenParameter input) {
-                    return !input.required && input.defaultValue != null;
-                }
-            });
+            this.isStream = SpecNormalizer.isStream(vendorExtensions);
+            this.hasNonRequiredDefaultQueryParams = SpecNormalizer.hasNonRequiredDefaultQueryParams(vendorExtensions);
+            this.isPaginated = SpecNormalizer.isPaginated(vendorExtensions) && isReturnModelRefContainer;
+            // Only the (deserialized) responses are cached, not the streamed ones
+            this.isCacheable = SpecNormalizer.isCacheable(vendorExtensions) && isGet && returnType != null && !isPaginated;
+            this.isCacheInvalidating = SpecNormalizer.isCacheInvalidating(vendorExtensions) && !isGet;
+            this.isIdempotent = SpecNormalizer.isIdempotent(vendorExtensions);
+            // A single id in the path (getAccount, addBundleBlockingState, ...): the ...Bulk variant runs it for a collection of ids
+            this.isBulk = pathParams.size() == 1 && "UUID".equals(pathParams.get(0).dataType) && !isStream && !isPaginated && (returnType != null || !isGet);
+            this.isBatchable = SpecNormalizer.isBatchable(vendorExtensions) && bodyParam != null;
+            // Responses read whole by the apis (the streamed variants are not), which may ask for them compressed
+            this.acceptsGzip = isGet && returnType != null;
+            // Last one wins, like successive withHeader calls would (GET requests have no Content-Type)
+            final String accept = hasProduces ? produces.get(produces.size() - 1).get("mediaType") : null;
+            final String contentType = hasConsumes && !isGet ? consumes.get(consumes.size() - 1).get("mediaType") : null;
+            this.headerSet = new HeaderSet(accept, contentType);
+            this.operationDescriptor = new OperationDescriptor(operationId, baseName, httpMethod, isCacheable, isCacheInvalidating, isIdempotent);
+            // Result of the ...Async variant: what the blocking method returns, boxed (void for DELETE, status code for GET streams)
+            if (isDelete || (returnType == null && !isGet)) {
+                this.asyncReturnType = "Void";
+                this.asyncReturnsVoid = true;
+            } else {
+                this.asyncReturnType = returnType != null ? returnType : "Integer";
+            }
         }
     }
     
+    private static class HeaderSet {
+
+        public final String name;
+        public final boolean hasAccept;
+        public final String accept;
+        public final boolean hasContentType;
+        public final String contentType;
+        public final String gzipName;
+        // Also asking for a gzip compressed response, for the operations reading one
+        public boolean hasGzip;
+
+        private HeaderSet(@Nullable final String accept, @Nullable final String contentType) {
+            this.hasAccept = accept != null;
+            this.accept = accept;
+            this.hasContentType = contentType != null;
+            this.contentType = contentType;
+            final StringBuilder sb = new StringBuilder("HEADERS");
+            if (accept != null) {
+                sb.append("_ACCEPT_").append(toConstantName(accept));
+            }
+            if (contentType != null) {
+                sb.append("_CONTENT_TYPE_").append(toConstantName(contentType));
+            }
+            this.name = sb.toString();
+            this.gzipName = name + "_GZIP";
+        }
+
+        private static String toConstantName(final String mediaType) {
+            return mediaType.replace("*", "ANY").replaceAll("[^A-Za-z0-9]+", "_").toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private static class OperationDescriptor {
+
+        public final String name;
+        public final String operationId;
+        public final String tag;
+        public final String httpMethod;
+        public final boolean cacheable;
+        public final boolean cacheInvalidating;
+        public final boolean idempotent;
+
+        private OperationDescriptor(final String operationId, final String tag, final String httpMethod, final boolean cacheable, final boolean cacheInvalidating, final boolean idempotent) {
+            this.name = "OPERATION_" + underscore(operationId).toUpperCase(Locale.ROOT);
+            this.operationId = operationId;
+            this.tag = tag;
+            this.httpMethod = httpMethod.toUpperCase(Locale.ROOT);
+            this.cacheable = cacheable;
+            this.cacheInvalidating = cacheInvalidating;
+            this.idempotent = idempotent;
+        }
+    }
+
+    private static class PathSegment {
+
+        public final boolean isLiteral;
+        public final String literal;
+        // Path param, as is when its value never needs to be encoded (UUID)
+        public final boolean isEncoded;
+        public final String paramName;
+
+        private PathSegment(final String literal, @Nullable final CodegenParameter param) {
+            this.isLiteral = param == null;
+            this.literal = literal;
+            this.isEncoded = param != null && !param.isUuid;
+            this.paramName = param != null ? param.paramName : null;
+        }
+
+        private static PathSegment literal(final String literal) {
+            return new PathSegment(literal, null);
+        }
+
+        private static PathSegment param(final CodegenParameter param) {
+            return new PathSegment(null, param);
+        }
+    }
+
     private static class ExtendedCodegenParameter extends CodegenParameter {
 
         public boolean isMandatoryParam;
@@ -471,7 +811,7 @@ public class KillbillJavaGenerator extends AbstractJavaCodegen implements Codege
             // Instead of generating ' List<String> pluginProperty', we generate Map<String, String> pluginProperty
             // and some glue code to correctly serialize those as query param.
             //
-            this.isQueryPluginProperty = p.baseName != null && p.baseName.equals("pluginProperty") && p.isQueryParam && p.isListContainer;
+            this.isQueryPluginProperty = SpecNormalizer.isQueryPluginProperty(p.vendorExtensions);
             this.isFile = p.isFile;
             this.notFile = p.notFile;
             this.hasMore = p.hasMore;
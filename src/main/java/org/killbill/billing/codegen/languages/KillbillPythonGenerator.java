@@ -5,6 +5,7 @@ import com.google.common.collect.Iterables;
 import io.swagger.codegen.*;
 import io.swagger.models.properties.*;
 import io.swagger.codegen.languages.PythonClientCodegen;
+import io.swagger.models.Model;
 import io.swagger.models.Swagger;
 
 import javax.annotation.Nullable;
@@ -20,6 +21,9 @@ public class KillbillPythonGenerator extends PythonClientCodegen implements Code
     private static final String PACKAGE_VERSION = "0.0.1-SNAPSHOT";
     private static final Boolean EXCLUDE_TESTS = true;
 
+    private SpecFingerprints fingerprints;
+    private final ProcessingCache processingCache = new ProcessingCache();
+
     /**
      * Configures the type of generator.
      *
@@ -88,6 +92,26 @@ public class KillbillPythonGenerator extends PythonClientCodegen implements Code
         return "_" + name;  // add an underscore to the name
     }
 
+    @Override
+    public String toVarName(final String name) {
+        return processingCache.toVarName(name, super::toVarName);
+    }
+
+    @Override
+    public String getterAndSetterCapitalize(final String name) {
+        return processingCache.getterAndSetterCapitalize(name, super::getterAndSetterCapitalize);
+    }
+
+    @Override
+    public String toModelName(final String name) {
+        return processingCache.toModelName(name, super::toModelName);
+    }
+
+    @Override
+    public CodegenModel fromModel(final String name, final Model model, final Map<String, Model> allDefinitions) {
+        return processingCache.fromModel(name, model, allDefinitions, () -> super.fromModel(name, model, allDefinitions));
+    }
+
     /**
      * Optional - type declaration.  This is a String which is used by the templates to instantiate your
      * types.  There is typically special handling for different property types
@@ -140,6 +164,33 @@ public class KillbillPythonGenerator extends PythonClientCodegen implements Code
 
     }
 
+    @Override
+    public void preprocessSwagger(Swagger swagger) {
+        super.preprocessSwagger(swagger);
+        SpecNormalizer.normalize(swagger);
+        if (SpecFingerprints.isEnabled()) {
+            fingerprints = new SpecFingerprints(this);
+            fingerprints.compute(swagger);
+        }
+    }
+
+    @Override
+    public void processSwagger(Swagger swagger) {
+        super.processSwagger(swagger);
+        if (fingerprints != null) {
+            fingerprints.deleteOrphans();
+            fingerprints.writeManifest();
+        }
+    }
+
+    @Override
+    public boolean shouldOverwrite(String filename) {
+        if (fingerprints != null && fingerprints.isUpToDate(filename)) {
+            return false;
+        }
+        return super.shouldOverwrite(filename);
+    }
+
     @Override
     public void postProcessParameter(CodegenParameter parameter){
         parameter.paramName = deletePrefix(parameter.paramName);
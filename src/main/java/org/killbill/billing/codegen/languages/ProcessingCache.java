@@ -0,0 +1,75 @@
+package org.killbill.billing.codegen.languages;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.swagger.codegen.CodegenModel;
+import io.swagger.models.Model;
+
+/**
+ * Results of the conversions swagger-codegen repeats the most while processing the spec, for one generator instance.
+ * <p>
+ * The name conversions (toVarName, getterAndSetterCapitalize, toModelName) compile regular expressions on each call and
+ * only depend on the name, and DefaultCodegen#fromOperation processes the whole model returned by each operation only to
+ * read its discriminator. Together, they were most of the processing time of a regeneration (watch mode).
+ */
+class ProcessingCache {
+
+    private final ConcurrentMap<String, String> varNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> capitalizedNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> modelNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ProcessedModel> models = new ConcurrentHashMap<>();
+
+    String toVarName(final String name, final Function<String, String> conversion) {
+        return memoize(varNames, name, conversion);
+    }
+
+    String getterAndSetterCapitalize(final String name, final Function<String, String> conversion) {
+        return memoize(capitalizedNames, name, conversion);
+    }
+
+    String toModelName(final String name, final Function<String, String> conversion) {
+        return memoize(modelNames, name, conversion);
+    }
+
+    // Same model and definitions (instances), same result
+    CodegenModel fromModel(final String name, final Model model, final Map<String, Model> allDefinitions, final Supplier<CodegenModel> processing) {
+        final ProcessedModel processed = models.get(name);
+        if (processed != null && processed.model == model && processed.allDefinitions == allDefinitions) {
+            return processed.codegenModel;
+        }
+        final CodegenModel result = processing.get();
+        models.put(name, new ProcessedModel(model, allDefinitions, result));
+        return result;
+    }
+
+    // Not computeIfAbsent, as a conversion may convert other names
+    private static String memoize(final ConcurrentMap<String, String> names, final String name, final Function<String, String> conversion) {
+        if (name == null) {
+            return conversion.apply(null);
+        }
+        final String converted = names.get(name);
+        if (converted != null) {
+            return converted;
+        }
+        final String result = conversion.apply(name);
+        names.putIfAbsent(name, result);
+        return result;
+    }
+
+    private static final class ProcessedModel {
+
+        private final Model model;
+        private final Map<String, Model> allDefinitions;
+        private final CodegenModel codegenModel;
+
+        private ProcessedModel(final Model model, final Map<String, Model> allDefinitions, final CodegenModel codegenModel) {
+            this.model = model;
+            this.allDefinitions = allDefinitions;
+            this.codegenModel = codegenModel;
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package org.killbill.billing.codegen.languages;
+
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.models.HttpMethod;
+import io.swagger.models.Model;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.util.Json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Support for incremental generation (-Dincremental=true).
+ * <p>
+ * Before generation we compute a content hash for every api (tag) and model output file, based on the part of the spec
+ * it is generated from, and compare it with the manifest written by the previous run in the output directory. Files whose
+ * fingerprint did not change are not rewritten (see CodegenConfig#shouldOverwrite) so that their mtime is preserved and
+ * downstream incremental builds only recompile what changed.
+ * <p>
+ * Each fingerprint also includes the generator itself (jar containing the generator and templates, custom template directory, Kill Bill API jar),
+ * so that a new generator or template always leads to a full regeneration.
+ * <p>
+ * The manifest lists the files generated by the previous run: the ones no longer generated (e.g definition or tag removed
+ * from the spec) are deleted.
+ */
+public class SpecFingerprints {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpecFingerprints.class);
+
+    public static final String INCREMENTAL = "incremental";
+
+    private static final String MANIFEST = ".swagger-codegen" + File.separator + "FINGERPRINTS";
+
+    private static final Pattern REF_PATTERN = Pattern.compile("\"\\$ref\"\\s*:\\s*\"#/definitions/([^\"]+)\"");
+
+    private static final ObjectMapper MAPPER = Json.mapper().copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final CodegenConfig config;
+    private final File outputFolder;
+    // Relative output path -> fingerprint
+    private final Map<String, String> previous;
+    private final Map<String, String> current = new TreeMap<>();
+    // Generator specific inputs, see withInputFile and withOption
+    private final List<String> salts = new ArrayList<>();
+
+    public SpecFingerprints(final CodegenConfig config) {
+        this.config = config;
+        this.outputFolder = new File(config.outputFolder()).getAbsoluteFile();
+        this.previous = readManifest(new File(outputFolder, MANIFEST));
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(INCREMENTAL));
+    }
+
+    /**
+     * Adds a file the generated files depend on (e.g Kill Bill API jar): its content is part of every fingerprint.
+     *
+     * @param location file, or directory (all the files below it), ignored when it does not exist
+     */
+    public SpecFingerprints withInputFile(final String location) {
+        if (location != null && new File(location).exists()) {
+            salts.add("file " + hashOf(location));
+        }
+        return this;
+    }
+
+    /**
+     * Adds a generator option the generated files depend on: its value is part of every fingerprint.
+     */
+    public SpecFingerprints withOption(final String name, final Object value) {
+        salts.add("option " + name + '=' + value);
+        return this;
+    }
+
+    /**
+     * Computes the fingerprint of all the api and model files this spec will generate.
+     *
+     * @param swagger the parsed spec
+     */
+    public void compute(final Swagger swagger) {
+        final Map<String, Model> definitions = swagger.getDefinitions() != null ? swagger.getDefinitions() : Collections.<String, Model>emptyMap();
+        final Map<String, String> definitionsJson = new HashMap<>();
+        for (final Map.Entry<String, Model> entry : definitions.entrySet()) {
+            definitionsJson.put(entry.getKey(), toJson(entry.getValue()));
+        }
+
+        final StringBuilder salt = new StringBuilder();
+        salt.append(config.getName()).append('\n');
+        salt.append(hashOf(getGeneratorLocation())).append('\n');
+        salt.append(hashOf(config.templateDir())).append('\n');
+        for (final String generatorSalt : salts) {
+            salt.append(generatorSalt).append('\n');
+        }
+        // The spec without paths and definitions (info, basePath, consumes, produces, ...) is available to every template
+        final Swagger global = new Swagger().info(swagger.getInfo())
+                                            .basePath(swagger.getBasePath())
+                                            .host(swagger.getHost())
+                                            .consumes(swagger.getConsumes())
+                                            .produces(swagger.getProduces())
+                                            .tags(swagger.getTags());
+        global.setSecurityDefinitions(swagger.getSecurityDefinitions());
+        salt.append(toJson(global)).append('\n');
+        // Output of one file often depends on the names of the other models (e.g isBodyModelRefContainer)
+        salt.append(new TreeSet<>(definitions.keySet())).append('\n');
+
+        // Models
+        for (final String name : definitions.keySet()) {
+            final StringBuilder input = new StringBuilder(salt);
+            appendDefinitions(input, definitionsJson.get(name), definitionsJson, new TreeSet<String>());
+            final String fingerprint = sha256(input.toString());
+            for (final String templateName : config.modelTemplateFiles().keySet()) {
+                record(config.modelFilename(templateName, name), fingerprint);
+            }
+            for (final String templateName : config.modelDocTemplateFiles().keySet()) {
+                record(config.modelDocFileFolder() + File.separator + config.toModelDocFilename(name) + config.modelDocTemplateFiles().get(templateName), fingerprint);
+            }
+        }
+
+        // Apis: group operations by tag like DefaultGenerator does
+        final Map<String, StringBuilder> tags = new TreeMap<>();
+        if (swagger.getPaths() != null) {
+            for (final Map.Entry<String, Path> entry : swagger.getPaths().entrySet()) {
+                final Path path = entry.getValue();
+                final String pathParameters = toJson(path.getParameters());
+                for (final Map.Entry<HttpMethod, Operation> op : path.getOperationMap().entrySet()) {
+                    final List<String> tagNames = op.getValue().getTags() != null && !op.getValue().getTags().isEmpty() ?
+                                                  op.getValue().getTags() : Collections.singletonList("default");
+                    final String operationJson = entry.getKey() + " " + op.getKey() + " " + pathParameters + " " + toJson(op.getValue()) + '\n';
+                    for (final String tagName : tagNames) {
+                        final String tag = config.sanitizeTag(tagName);
+                        if (!tags.containsKey(tag)) {
+                            tags.put(tag, new StringBuilder(salt));
+                        }
+                        tags.get(tag).append(operationJson);
+                    }
+                }
+            }
+        }
+        for (final Map.Entry<String, StringBuilder> entry : tags.entrySet()) {
+            final String fingerprint = sha256(entry.getValue().toString());
+            for (final String templateName : config.apiTemplateFiles().keySet()) {
+                record(config.apiFilename(templateName, entry.getKey()), fingerprint);
+            }
+            for (final String templateName : config.apiDocTemplateFiles().keySet()) {
+                record(config.apiDocFilename(templateName, entry.getKey()), fingerprint);
+            }
+        }
+    }
+
+    /**
+     * @return true if the file exists and was generated from the exact same inputs
+     */
+    public boolean isUpToDate(final String filename) {
+        final String key = relativize(filename);
+        final String fingerprint = current.get(key);
+        return fingerprint != null && fingerprint.equals(previous.get(key)) && new File(filename).exists();
+    }
+
+    /**
+     * Deletes the files generated by the previous run that this one no longer generates.
+     */
+    public void deleteOrphans() {
+        for (final String key : previous.keySet()) {
+            if (current.containsKey(key) || key.startsWith("../")) {
+                continue;
+            }
+            final File orphan = new File(outputFolder, key);
+            if (orphan.isFile()) {
+                if (orphan.delete()) {
+                    LOGGER.info("Deleted {}, no longer generated", orphan);
+                } else {
+                    LOGGER.warn("Cannot delete {}, no longer generated", orphan);
+                }
+            }
+        }
+    }
+
+    public void writeManifest() {
+        final File manifest = new File(outputFolder, MANIFEST);
+        if (current.equals(previous) && manifest.isFile()) {
+            return;
+        }
+        try {
+            if (!manifest.getParentFile().isDirectory() && !manifest.getParentFile().mkdirs()) {
+                throw new IOException("Cannot create directory " + manifest.getParentFile());
+            }
+            final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifest), StandardCharsets.UTF_8));
+            try {
+                for (final Map.Entry<String, String> entry : current.entrySet()) {
+                    writer.write(entry.getValue());
+                    writer.write("  ");
+                    writer.write(entry.getKey());
+                    writer.newLine();
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (final IOException e) {
+            // Next run will just regenerate everything
+            LOGGER.warn("Failed to write {}: {}", manifest, e.getMessage());
+        }
+    }
+
+    private void record(final String filename, final String fingerprint) {
+        current.put(relativize(filename), fingerprint);
+    }
+
+    private String relativize(final String filename) {
+        final File file = new File(filename.replaceAll("//", "/")).getAbsoluteFile();
+        return outputFolder.toPath().relativize(file.toPath().normalize()).toString().replace(File.separatorChar, '/');
+    }
+
+    // Model output also depends on the definitions it references (parent, enums, ...)
+    private static void appendDefinitions(final StringBuilder input, final String json, final Map<String, String> definitionsJson, final TreeSet<String> visited) {
+        input.append(json).append('\n');
+        final Matcher matcher = REF_PATTERN.matcher(json);
+        while (matcher.find()) {
+            final String ref = matcher.group(1);
+            if (visited.add(ref) && definitionsJson.containsKey(ref)) {
+                appendDefinitions(input, definitionsJson.get(ref), definitionsJson, visited);
+            }
+        }
+    }
+
+    private static Map<String, String> readManifest(final File manifest) {
+        final Map<String, String> result = new HashMap<>();
+        if (!manifest.isFile()) {
+            return result;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final int sep = line.indexOf("  ");
+                    if (sep > 0) {
+                        result.put(line.substring(sep + 2), line.substring(0, sep));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Ignoring unreadable {}: {}", manifest, e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    private static String getGeneratorLocation() {
+        try {
+            return new File(SpecFingerprints.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (final URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toJson(final Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Hash of a file, or of all the files below a directory; empty if it does not exist (e.g embedded template dir)
+    private static String hashOf(final String location) {
+        if (location == null) {
+            return "";
+        }
+        final File file = new File(location);
+        final List<File> files = new ArrayList<>();
+        collectFiles(file, files);
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[8192];
+        for (final File f : files) {
+            digest.update(f.getPath().getBytes(StandardCharsets.UTF_8));
+            try {
+                final InputStream in = new FileInputStream(f);
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (final IOException e) {
+                throw new IllegalStateException("Cannot read " + f, e);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void collectFiles(final File file, final List<File> files) {
+        if (file.isFile()) {
+            files.add(file);
+        } else if (file.isDirectory()) {
+            final File[] children = file.listFiles();
+            if (children != null) {
+                final TreeSet<File> sorted = new TreeSet<>();
+                Collections.addAll(sorted, children);
+                for (final File child : sorted) {
+                    collectFiles(child, files);
+                }
+            }
+        }
+    }
+
+    private static String sha256(final String input) {
+        return toHex(newDigest().digest(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
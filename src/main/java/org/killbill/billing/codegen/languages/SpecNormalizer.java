@@ -0,0 +1,232 @@
+package org.killbill.billing.codegen.languages;
+
+import io.swagger.models.ArrayModel;
+import io.swagger.models.HttpMethod;
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Response;
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.BodyParameter;
+import io.swagger.models.parameters.HeaderParameter;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.parameters.PathParameter;
+import io.swagger.models.parameters.QueryParameter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kill Bill specific operation metadata, shared by all the generators and computed once per spec.
+ * <p>
+ * The metadata is stored as vendor extensions of the spec itself, so it ends up in the vendorExtensions of the
+ * CodegenOperation and CodegenParameter objects (and templates) of every language, and survives a (JSON) copy of the
+ * spec: when generating several languages from the same parsed spec (see KillbillCodegen), the spec is normalized
+ * once and each generator works on its own copy.
+ */
+public class SpecNormalizer {
+
+    // Set on the spec once normalized
+    public static final String NORMALIZED = "x-killbill-normalized";
+
+    // Set on the operations having optional query parameters with a default value
+    public static final String HAS_NON_REQUIRED_DEFAULT_QUERY_PARAMS = "x-killbill-has-non-required-default-query-params";
+
+    // Set on the pluginProperty query parameters (list of key=value), which clients expose as a map
+    public static final String QUERY_PLUGIN_PROPERTY = "x-killbill-query-plugin-property";
+
+    // Set on the GET operations returning a page of a list (pagination and search endpoints), iterable with offset and limit
+    public static final String PAGINATED = "x-killbill-paginated";
+
+    // Set on the offset query parameter of the paginated operations
+    public static final String PAGINATION_OFFSET = "x-killbill-pagination-offset";
+
+    // Set on the GET operations reading tenant level configuration (catalog, overdue, tenant and plugin config, invoice
+    // templates and translations): it rarely changes, so clients may cache the responses
+    public static final String CACHEABLE = "x-killbill-cacheable";
+
+    // Set on the operations changing that configuration, invalidating the cached responses
+    public static final String CACHE_INVALIDATING = "x-killbill-cache-invalidating";
+
+    // Set on the operations safe to send more than once: GET, and the operations with an idempotency hint (x-idempotent)
+    public static final String IDEMPOTENT = "x-killbill-idempotent";
+
+    // Vendor extension of the spec marking an operation (other than GET) as idempotent
+    private static final String IDEMPOTENCY_HINT = "x-idempotent";
+
+    // Set on the GET operations returning a binary body (application/octet-stream), which clients may stream to a file
+    public static final String STREAM = "x-killbill-stream";
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    // Set on the POST operations adding a list of tags or custom fields to an object (e.g createAccountTags), and taking
+    // nothing else: clients may merge the concurrent writes to the same object into a single request
+    public static final String BATCHABLE = "x-killbill-batchable";
+    private static final List<String> BATCHABLE_PATH_SUFFIXES = Collections.unmodifiableList(Arrays.asList("/tags", "/customFields"));
+
+    // Configuration reads (the spec has nothing telling them apart), and the writes changing what they return
+    private static final Set<String> CACHEABLE_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "getCatalogXml", "getCatalogJson",
+            "getOverdueConfigXml", "getOverdueConfigJson",
+            "getPluginConfiguration", "getAllPluginConfiguration", "getPluginPaymentStateMachineConfig", "getPerTenantConfiguration", "getUserKeyValue",
+            "getInvoiceTemplate", "getInvoiceMPTemplate", "getInvoiceTranslation", "getCatalogTranslation")));
+    private static final Set<String> CACHE_INVALIDATING_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "uploadCatalogXml", "deleteCatalog", "addSimplePlan",
+            "uploadOverdueConfigXml", "uploadOverdueConfigJson",
+            "uploadPluginConfiguration", "deletePluginConfiguration", "uploadPluginPaymentStateMachineConfig", "deletePluginPaymentStateMachineConfig",
+            "uploadPerTenantConfiguration", "deletePerTenantConfiguration", "insertUserKeyValue", "deleteUserKeyValue",
+            "uploadInvoiceTemplate", "uploadInvoiceMPTemplate", "uploadInvoiceTranslation", "uploadCatalogTranslation")));
+
+    private static final String PLUGIN_PROPERTY = "pluginProperty";
+    private static final String OFFSET = "offset";
+    private static final String LIMIT = "limit";
+
+    public static boolean isNormalized(final Swagger swagger) {
+        return swagger.getVendorExtensions() != null && Boolean.TRUE.equals(swagger.getVendorExtensions().get(NORMALIZED));
+    }
+
+    public static void normalize(final Swagger swagger) {
+        if (isNormalized(swagger)) {
+            return;
+        }
+        if (swagger.getPaths() != null) {
+            for (final Map.Entry<String, Path> pathEntry : swagger.getPaths().entrySet()) {
+                final Path path = pathEntry.getValue();
+                for (final Map.Entry<HttpMethod, Operation> entry : path.getOperationMap().entrySet()) {
+                    normalize(path, entry.getKey(), entry.getValue());
+                    if (entry.getKey() == HttpMethod.GET || hasIdempotencyHint(entry.getValue())) {
+                        entry.getValue().setVendorExtension(IDEMPOTENT, true);
+                    }
+                    if (entry.getKey() == HttpMethod.GET && producesOctetStream(entry.getValue())) {
+                        entry.getValue().setVendorExtension(STREAM, true);
+                    }
+                    if (entry.getKey() == HttpMethod.POST && isBatchable(pathEntry.getKey(), path, entry.getValue())) {
+                        entry.getValue().setVendorExtension(BATCHABLE, true);
+                    }
+                    final String operationId = entry.getValue().getOperationId();
+                    if (entry.getKey() == HttpMethod.GET && CACHEABLE_OPERATIONS.contains(operationId)) {
+                        entry.getValue().setVendorExtension(CACHEABLE, true);
+                    } else if (entry.getKey() != HttpMethod.GET && CACHE_INVALIDATING_OPERATIONS.contains(operationId)) {
+                        entry.getValue().setVendorExtension(CACHE_INVALIDATING, true);
+                    }
+                }
+            }
+        }
+        swagger.setVendorExtension(NORMALIZED, true);
+    }
+
+    public static boolean hasNonRequiredDefaultQueryParams(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(HAS_NON_REQUIRED_DEFAULT_QUERY_PARAMS));
+    }
+
+    public static boolean isQueryPluginProperty(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(QUERY_PLUGIN_PROPERTY));
+    }
+
+    public static boolean isPaginated(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(PAGINATED));
+    }
+
+    public static boolean isCacheable(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(CACHEABLE));
+    }
+
+    public static boolean isCacheInvalidating(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(CACHE_INVALIDATING));
+    }
+
+    public static boolean isIdempotent(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(IDEMPOTENT));
+    }
+
+    public static boolean isStream(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(STREAM));
+    }
+
+    public static boolean isBatchable(final Map<String, Object> vendorExtensions) {
+        return vendorExtensions != null && Boolean.TRUE.equals(vendorExtensions.get(BATCHABLE));
+    }
+
+    private static boolean hasIdempotencyHint(final Operation operation) {
+        return operation.getVendorExtensions() != null && Boolean.TRUE.equals(operation.getVendorExtensions().get(IDEMPOTENCY_HINT));
+    }
+
+    private static boolean producesOctetStream(final Operation operation) {
+        return operation.getProduces() != null && !operation.getProduces().isEmpty() && OCTET_STREAM.equals(operation.getProduces().get(0));
+    }
+
+    // A single path parameter (the object) and a list body, the other parameters being headers (X-Killbill-CreatedBy, ...)
+    private static boolean isBatchable(final String pathName, final Path path, final Operation operation) {
+        boolean hasBatchableSuffix = false;
+        for (final String suffix : BATCHABLE_PATH_SUFFIXES) {
+            hasBatchableSuffix |= pathName.endsWith(suffix);
+        }
+        if (!hasBatchableSuffix) {
+            return false;
+        }
+        int pathParameters = 0;
+        boolean listBody = false;
+        for (final Parameter parameter : parameters(path, operation)) {
+            if (parameter instanceof PathParameter) {
+                pathParameters++;
+            } else if (parameter instanceof BodyParameter) {
+                listBody = ((BodyParameter) parameter).getSchema() instanceof ArrayModel;
+            } else if (!(parameter instanceof HeaderParameter)) {
+                return false;
+            }
+        }
+        return pathParameters == 1 && listBody;
+    }
+
+    private static void normalize(final Path path, final HttpMethod method, final Operation operation) {
+        final List<Parameter> parameters = parameters(path, operation);
+
+        boolean hasNonRequiredDefaultQueryParams = false;
+        QueryParameter offset = null;
+        QueryParameter limit = null;
+        for (final Parameter parameter : parameters) {
+            if (!(parameter instanceof QueryParameter)) {
+                continue;
+            }
+            final QueryParameter queryParameter = (QueryParameter) parameter;
+            if (PLUGIN_PROPERTY.equals(queryParameter.getName()) && "array".equals(queryParameter.getType())) {
+                queryParameter.setVendorExtension(QUERY_PLUGIN_PROPERTY, true);
+            }
+            if (!queryParameter.getRequired() && queryParameter.getDefaultValue() != null) {
+                hasNonRequiredDefaultQueryParams = true;
+            }
+            if (OFFSET.equals(queryParameter.getName())) {
+                offset = queryParameter;
+            } else if (LIMIT.equals(queryParameter.getName())) {
+                limit = queryParameter;
+            }
+        }
+        if (hasNonRequiredDefaultQueryParams) {
+            operation.setVendorExtension(HAS_NON_REQUIRED_DEFAULT_QUERY_PARAMS, true);
+        }
+        if (method == HttpMethod.GET && offset != null && limit != null && returnsArray(operation)) {
+            operation.setVendorExtension(PAGINATED, true);
+            offset.setVendorExtension(PAGINATION_OFFSET, true);
+        }
+    }
+
+    // DefaultGenerator adds the parameters of the path to each of its operations
+    private static List<Parameter> parameters(final Path path, final Operation operation) {
+        final List<Parameter> parameters = new ArrayList<>();
+        if (path.getParameters() != null) {
+            parameters.addAll(path.getParameters());
+        }
+        if (operation.getParameters() != null) {
+            parameters.addAll(operation.getParameters());
+        }
+        return parameters;
+    }
+
+    private static boolean returnsArray(final Operation operation) {
+        final Response response = operation.getResponses() != null ? operation.getResponses().get("200") : null;
+        return response != null && response.getResponseSchema() instanceof ArrayModel;
+    }
+}
@@ -0,0 +1,224 @@
+package org.killbill.billing.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.client.KillBillHttpClient;
+
+/**
+ * The Java client generated from kbswagger.yaml, compiled against the test classpath (killbill-client-java, killbill-api).
+ * <p>
+ * Generating and compiling the client takes a while, and surefire forks a JVM per test class: the compiled client is
+ * kept under target/generated-clients, keyed by the generator (target/classes, i.e code and templates) and the spec,
+ * and shared by all the test classes (and runs) until one of them changes. The compact models (-DcompactModels=true) are
+ * another client, kept next to it.
+ */
+public final class GeneratedJavaClient {
+
+    public static final String API_PACKAGE = "org.killbill.billing.client.api.gen";
+    public static final String MODEL_PACKAGE = "org.killbill.billing.client.model.gen";
+
+    private static final String SPEC = "kbswagger.yaml";
+    private static final File GENERATED_CLIENTS = new File("target/generated-clients");
+    private static final String PREFIX = "killbill-java-";
+    private static final String COMPACT_PREFIX = "killbill-compact-java-";
+
+    private static ClassLoader classLoader;
+    private static ClassLoader compactClassLoader;
+
+    private GeneratedJavaClient() {
+    }
+
+    public static synchronized Class<?> loadClass(final String name) throws Exception {
+        if (classLoader == null) {
+            classLoader = new GeneratedClassLoader(compiledClient().toURI().toURL(), GeneratedJavaClient.class.getClassLoader());
+        }
+        return classLoader.loadClass(name);
+    }
+
+    /**
+     * @return the class of the client generated with -DcompactModels=true
+     */
+    public static synchronized Class<?> loadCompactClass(final String name) throws Exception {
+        if (compactClassLoader == null) {
+            compactClassLoader = new GeneratedClassLoader(compiledClient(true).toURI().toURL(), GeneratedJavaClient.class.getClassLoader());
+        }
+        return compactClassLoader.loadClass(name);
+    }
+
+    /**
+     * @param api simple name of the api class, e.g TenantApi
+     * @param settings pairs of ApiOptionsBuilder method (e.g withResponseCache) and value, the null values being skipped
+     * @return the api of httpClient, built with these ApiOptions
+     */
+    public static Object newApi(final String api, final KillBillHttpClient httpClient, final Object... settings) throws Exception {
+        final Class<?> optionsClass = loadClass(API_PACKAGE + ".ApiOptions");
+        final Object builder = optionsClass.getMethod("builder").invoke(null);
+        for (int i = 0; i < settings.length; i += 2) {
+            if (settings[i + 1] == null) {
+                continue;
+            }
+            for (final Method method : builder.getClass().getMethods()) {
+                if (method.getName().equals(settings[i]) && method.getParameterTypes().length == 1) {
+                    method.invoke(builder, settings[i + 1]);
+                }
+            }
+        }
+        final Object options = builder.getClass().getMethod("build").invoke(builder);
+        return loadClass(API_PACKAGE + "." + api).getConstructor(KillBillHttpClient.class, optionsClass).newInstance(httpClient, options);
+    }
+
+    /**
+     * @return the names of the top level classes of the package, sorted
+     */
+    public static synchronized List<String> listClasses(final String packageName) throws Exception {
+        final File dir = new File(compiledClient(), packageName.replace('.', File.separatorChar));
+        final String[] files = dir.list((parent, name) -> name.endsWith(".class") && !name.contains("$"));
+        final List<String> result = new ArrayList<>();
+        for (final String file : files != null ? files : new String[0]) {
+            result.add(packageName + "." + file.substring(0, file.length() - ".class".length()));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static File compiledClient() throws Exception {
+        return compiledClient(false);
+    }
+
+    // Directory of the compiled classes, generated and compiled by the first JVM needing them
+    private static File compiledClient(final boolean compactModels) throws Exception {
+        if (!GENERATED_CLIENTS.isDirectory() && !GENERATED_CLIENTS.mkdirs()) {
+            throw new IOException("Cannot create " + GENERATED_CLIENTS);
+        }
+        final String prefix = compactModels ? COMPACT_PREFIX : PREFIX;
+        final String key = prefix + fingerprint();
+        final File dir = new File(GENERATED_CLIENTS, key);
+        final File classes = new File(dir, "classes");
+        final File compiled = new File(dir, "COMPILED");
+        try (final RandomAccessFile lockFile = new RandomAccessFile(new File(GENERATED_CLIENTS, "lock"), "rw");
+             final FileLock ignored = lockFile.getChannel().lock()) {
+            if (!compiled.isFile()) {
+                final File[] stale = GENERATED_CLIENTS.listFiles((parent, name) -> name.startsWith(prefix) && !name.equals(key));
+                for (final File staleDir : stale != null ? stale : new File[0]) {
+                    delete(staleDir);
+                }
+                delete(dir);
+                final File output = new File(dir, "output");
+                generate(output, compactModels);
+                compile(output, classes);
+                Files.write(compiled.toPath(), new byte[0]);
+            }
+        }
+        return classes;
+    }
+
+    // Of the generator (code and templates) and of the spec
+    private static String fingerprint() throws IOException, NoSuchAlgorithmException {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        final Path generator = new File("target/classes").toPath();
+        try (final Stream<Path> files = Files.walk(generator)) {
+            for (final Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                digest.update(generator.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        }
+        digest.update(Files.readAllBytes(new File(SPEC).toPath()));
+        return String.format("%064x", new BigInteger(1, digest.digest())).substring(0, 16);
+    }
+
+    private static void generate(final File output, final boolean compactModels) throws Exception {
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        System.setProperty("apiDocs", "false");
+        System.setProperty("apiTests", "false");
+        System.setProperty("modelDocs", "false");
+        System.setProperty("modelTests", "false");
+        System.setProperty("compactModels", String.valueOf(compactModels));
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            KillbillCodegen.generate(pool, "killbill-java", SPEC, output.getPath(), null);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void compile(final File output, final File classes) throws IOException {
+        if (!classes.mkdirs()) {
+            throw new IOException("Cannot create " + classes);
+        }
+        final List<File> sources;
+        try (final Stream<Path> files = Files.walk(new File(output, "src/main/java").toPath())) {
+            sources = files.filter(path -> path.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+        }
+        // Surefire runs the tests from a manifest-only jar, the actual classpath is in this property
+        final String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final List<String> options = new ArrayList<>(Arrays.asList("-d", classes.getPath(), "-cp", classpath, "-proc:none", "-nowarn"));
+            if (!compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromFiles(sources)).call()) {
+                throw new IllegalStateException("Cannot compile the client generated into " + output);
+            }
+        }
+    }
+
+    private static void delete(final File dir) throws IOException {
+        if (!dir.exists()) {
+            return;
+        }
+        try (final Stream<Path> files = Files.walk(dir.toPath())) {
+            for (final Path path : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // killbill-client-java ships its own generated classes (same packages): the ones generated by the test win
+    private static final class GeneratedClassLoader extends URLClassLoader {
+
+        private GeneratedClassLoader(final URL classes, final ClassLoader parent) {
+            super(new URL[]{classes}, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    } catch (final ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.killbill.billing.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * HTTP/1.1 server on the loopback interface for the generated clients: each request (one per connection) is answered by
+ * the handler, on a thread of its own so that concurrent calls are served concurrently.
+ */
+final class LocalServer implements Closeable {
+
+    interface Handler {
+
+        Response handle(Request request) throws Exception;
+    }
+
+    static final class Request {
+
+        private final String method;
+        private final String target;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        private Request(final String method, final String target, final Map<String, String> headers, final byte[] body) {
+            this.method = method;
+            this.target = target;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        /**
+         * @return path and query, as received
+         */
+        String getTarget() {
+            return target;
+        }
+
+        String getPath() {
+            final int query = target.indexOf('?');
+            return query == -1 ? target : target.substring(0, query);
+        }
+
+        /**
+         * @return the value of the header (case insensitive name), null when missing
+         */
+        String getHeader(final String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        String getBody() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return method + " " + target;
+        }
+    }
+
+    interface Body {
+
+        void write(OutputStream out) throws Exception;
+    }
+
+    static final class Response {
+
+        private final int status;
+        private final byte[] body;
+        private final Body streamedBody;
+        private final String[] headers;
+
+        /**
+         * @param headers names and values
+         */
+        Response(final int status, final byte[] body, final String... headers) {
+            this(status, body, null, headers);
+        }
+
+        private Response(final int status, final byte[] body, final Body streamedBody, final String... headers) {
+            this.status = status;
+            this.body = body;
+            this.streamedBody = streamedBody;
+            this.headers = headers;
+        }
+
+        /**
+         * Body written (and flushed) as it goes, without Content-Length: it ends with the connection
+         */
+        static Response streamed(final int status, final Body body, final String... headers) {
+            return new Response(status, null, body, headers);
+        }
+
+        /**
+         * 200 with a JSON body
+         */
+        static Response json(final String body, final String... headers) {
+            return json(200, body, headers);
+        }
+
+        static Response json(final int status, final String body, final String... headers) {
+            final String[] allHeaders = new String[headers.length + 2];
+            allHeaders[0] = "Content-Type";
+            allHeaders[1] = "application/json";
+            System.arraycopy(headers, 0, allHeaders, 2, headers.length);
+            return new Response(status, body.getBytes(StandardCharsets.UTF_8), allHeaders);
+        }
+
+        /**
+         * Error as returned by Kill Bill, i.e a serialized BillingException
+         */
+        static Response error(final int status, final String message) {
+            return json(status, "{\"className\":\"java.lang.IllegalStateException\",\"code\":" + status + ",\"message\":\"" + message + "\",\"causeClassName\":null,\"causeMessage\":null,\"stackTrace\":[]}");
+        }
+    }
+
+    private final ServerSocket server;
+    private final List<Request> requests = new CopyOnWriteArrayList<Request>();
+
+    LocalServer(final Handler handler) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final Thread thread = new Thread(() -> {
+            while (!server.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (final IOException e) {
+                    // Closed
+                    return;
+                }
+                final Thread connection = new Thread(() -> serve(socket, handler), "LocalServer-connection");
+                connection.setDaemon(true);
+                connection.start();
+            }
+        }, "LocalServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void serve(final Socket socket, final Handler handler) {
+        try (final Socket ignored = socket) {
+            final InputStream in = socket.getInputStream();
+            final String[] requestLine = readLine(in).split(" ");
+            final Map<String, String> headers = new TreeMap<String, String>();
+            for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+                final int colon = header.indexOf(':');
+                headers.put(header.substring(0, colon).trim().toLowerCase(Locale.ROOT), header.substring(colon + 1).trim());
+            }
+            final String contentLength = headers.get("content-length");
+            final byte[] body = new byte[contentLength == null ? 0 : Integer.parseInt(contentLength)];
+            for (int read = 0; read < body.length; ) {
+                final int count = in.read(body, read, body.length - read);
+                if (count == -1) {
+                    throw new IOException("Truncated body");
+                }
+                read += count;
+            }
+
+            final Request request = new Request(requestLine[0], requestLine[1], headers, body);
+            requests.add(request);
+            Response response;
+            try {
+                response = handler.handle(request);
+            } catch (final Exception e) {
+                response = Response.error(500, String.valueOf(e));
+            }
+            write(socket.getOutputStream(), response);
+        } catch (final IOException e) {
+            // Closed by the client
+        }
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int read = in.read(); read != '\n'; read = in.read()) {
+            if (read == -1) {
+                throw new IOException("Connection closed");
+            }
+            if (read != '\r') {
+                line.write(read);
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static void write(final OutputStream out, final Response response) throws IOException {
+        final StringBuilder head = new StringBuilder("HTTP/1.1 ").append(response.status).append(" Status\r\nConnection: close\r\n");
+        if (response.body != null) {
+            head.append("Content-Length: ").append(response.body.length).append("\r\n");
+        }
+        for (int i = 0; i < response.headers.length; i += 2) {
+            head.append(response.headers[i]).append(": ").append(response.headers[i + 1]).append("\r\n");
+        }
+        out.write(head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (response.body != null) {
+            out.write(response.body);
+        } else {
+            out.flush();
+            try {
+                response.streamedBody.write(out);
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new IOException(e);
+            }
+        }
+        out.flush();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + server.getLocalPort();
+    }
+
+    /**
+     * @return the requests received so far, in order of arrival
+     */
+    List<Request> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
@@ -0,0 +1,119 @@
+package org.killbill.billing.codegen;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The ...Async variants of the generated apis complete with what the blocking operations return or throw.
+ */
+public class TestAsyncOperations {
+
+    private static final UUID FAILING_ID = UUID.fromString("00000000-0000-0000-0000-000000000500");
+
+    private static LocalServer server;
+
+    // Tag definitions named after their id, and a 500 for FAILING_ID
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new LocalServer(request -> {
+            final String id = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+            if (FAILING_ID.toString().equals(id)) {
+                return LocalServer.Response.error(500, "boom");
+            }
+            if ("DELETE".equals(request.getMethod())) {
+                return new LocalServer.Response(204, new byte[0]);
+            }
+            return LocalServer.Response.json("{\"id\":\"" + id + "\",\"name\":\"tag-" + id + "\",\"description\":\"test\",\"isControlTag\":false,\"applicableObjectTypes\":[\"ACCOUNT\"]}");
+        });
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test(timeout = 300000)
+    public void testSameResultAsBlockingCall() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".TagDefinitionApi");
+        final Object api = apiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient());
+        final UUID id = UUID.randomUUID();
+
+        final Object expected = apiClass.getMethod("getTagDefinition", UUID.class, RequestOptions.class).invoke(api, id, RequestOptions.empty());
+        final CompletableFuture<?> future = (CompletableFuture<?>) apiClass.getMethod("getTagDefinitionAsync", UUID.class, RequestOptions.class).invoke(api, id, RequestOptions.empty());
+        final Object actual = future.get();
+        assertNotNull(actual);
+        assertEquals(expected, actual);
+        assertEquals("tag-" + id, actual.getClass().getMethod("getName").invoke(actual));
+    }
+
+    @Test(timeout = 300000)
+    public void testVoidOperation() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".TagDefinitionApi");
+        final Object api = apiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient());
+        final UUID id = UUID.randomUUID();
+
+        final CompletableFuture<?> future = (CompletableFuture<?>) apiClass.getMethod("deleteTagDefinitionAsync", UUID.class, RequestOptions.class)
+                                                                            .invoke(api, id, RequestOptions.builder().withCreatedBy("test").build());
+        assertNull(future.get());
+        assertTrue(server.getRequests().stream().anyMatch(request -> "DELETE".equals(request.getMethod()) && request.getPath().endsWith("/" + id)));
+    }
+
+    @Test(timeout = 300000)
+    public void testExceptionallyCompleted() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".TagDefinitionApi");
+        final Object api = apiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient());
+
+        final CompletableFuture<?> future = (CompletableFuture<?>) apiClass.getMethod("getTagDefinitionAsync", UUID.class, RequestOptions.class).invoke(api, FAILING_ID, RequestOptions.empty());
+        try {
+            future.get();
+            fail();
+        } catch (final ExecutionException e) {
+            // Not wrapped into anything else than the ExecutionException of get()
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+            assertEquals(500, ((KillBillClientException) e.getCause()).getBillingException().getCode().intValue());
+        }
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test(timeout = 300000)
+    public void testGivenExecutor() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".TagDefinitionApi");
+        final AtomicInteger executed = new AtomicInteger();
+        final Executor executor = command -> {
+            executed.incrementAndGet();
+            new Thread(command).start();
+        };
+        final Object api = apiClass.getConstructor(KillBillHttpClient.class, Executor.class).newInstance(httpClient(), executor);
+
+        ((CompletableFuture<?>) apiClass.getMethod("getTagDefinitionAsync", UUID.class, RequestOptions.class).invoke(api, UUID.randomUUID(), RequestOptions.empty())).get();
+        assertEquals(1, executed.get());
+
+        // Rejected by the executor: completed exceptionally, not thrown
+        final Object rejecting = apiClass.getConstructor(KillBillHttpClient.class, Executor.class).newInstance(httpClient(), (Executor) command -> {
+            throw new RejectedExecutionException("full");
+        });
+        final CompletableFuture<?> future = (CompletableFuture<?>) apiClass.getMethod("getTagDefinitionAsync", UUID.class, RequestOptions.class).invoke(rejecting, UUID.randomUUID(), RequestOptions.empty());
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    private static KillBillHttpClient httpClient() {
+        return new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+    }
+}
@@ -0,0 +1,159 @@
+package org.killbill.billing.codegen;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ...Bulk methods run their operation once per id, at most bulkParallelism at once, and return a BulkResult per id in
+ * the order of the ids.
+ */
+public class TestBulk {
+
+    private static final int IDS = 20;
+
+    @Test(timeout = 300000)
+    public void testResultsInOrder() throws Exception {
+        final List<UUID> accountIds = newIds(IDS);
+        // Every fifth account fails
+        final Set<String> failing = new HashSet<String>();
+        for (int i = 0; i < IDS; i += 5) {
+            failing.add(accountIds.get(i).toString());
+        }
+        try (final LocalServer server = newServer(failing, 0, new AtomicInteger(), new AtomicInteger())) {
+            final Object accountApi = newAccountApi(server, 4, null);
+            final List<?> results = getAccountBulk(accountApi, accountIds);
+
+            assertEquals(IDS, results.size());
+            for (int i = 0; i < IDS; i++) {
+                final Object result = results.get(i);
+                assertEquals(accountIds.get(i), invoke(result, "getId"));
+                if (failing.contains(accountIds.get(i).toString())) {
+                    assertFalse((Boolean) invoke(result, "isSuccess"));
+                    assertNull(invoke(result, "getResult"));
+                    final KillBillClientException error = (KillBillClientException) invoke(result, "getError");
+                    assertEquals(400, error.getResponse().statusCode());
+                    assertTrue(String.valueOf(result), String.valueOf(result).contains("error="));
+                } else {
+                    assertTrue((Boolean) invoke(result, "isSuccess"));
+                    assertNull(invoke(result, "getError"));
+                    assertEquals(accountIds.get(i), invoke(invoke(result, "getResult"), "getAccountId"));
+                }
+            }
+            // Each id once
+            final Set<String> paths = new HashSet<String>();
+            for (final LocalServer.Request request : server.getRequests()) {
+                paths.add(request.getPath());
+            }
+            assertEquals(IDS, server.getRequests().size());
+            assertEquals(IDS, paths.size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testBoundedParallelism() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        try (final LocalServer server = newServer(new HashSet<String>(), 50, inFlight, maxInFlight)) {
+            // The caller and two workers
+            final List<?> results = getAccountBulk(newAccountApi(server, 3, null), newIds(12));
+            assertEquals(12, results.size());
+            for (final Object result : results) {
+                assertTrue(String.valueOf(result), (Boolean) invoke(result, "isSuccess"));
+            }
+            assertEquals(3, maxInFlight.get());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testRejectedWorkers() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        try (final LocalServer server = newServer(new HashSet<String>(), 10, inFlight, maxInFlight)) {
+            final Executor rejecting = runnable -> {
+                throw new RejectedExecutionException();
+            };
+            // The caller runs all the ids
+            final List<UUID> accountIds = newIds(6);
+            final List<?> results = getAccountBulk(newAccountApi(server, 4, rejecting), accountIds);
+            assertEquals(6, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(accountIds.get(i), invoke(results.get(i), "getId"));
+                assertTrue(String.valueOf(results.get(i)), (Boolean) invoke(results.get(i), "isSuccess"));
+            }
+            assertEquals(1, maxInFlight.get());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testOperationWithoutResult() throws Exception {
+        try (final LocalServer server = new LocalServer(request -> new LocalServer.Response(204, new byte[0]))) {
+            final Object accountApi = newAccountApi(server, 2, null);
+            final List<UUID> accountIds = newIds(3);
+            final List<?> results = (List<?>) accountApi.getClass().getMethod("closeAccountBulk", Collection.class, RequestOptions.class)
+                                                        .invoke(accountApi, accountIds, RequestOptions.empty());
+            assertEquals(3, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(accountIds.get(i), invoke(results.get(i), "getId"));
+                assertTrue((Boolean) invoke(results.get(i), "isSuccess"));
+                assertNull(invoke(results.get(i), "getResult"));
+            }
+            assertEquals(3, server.getRequests().size());
+            assertEquals("DELETE", server.getRequests().get(0).getMethod());
+        }
+    }
+
+    // Answers each account after the delay, keeping track of the requests in flight
+    private static LocalServer newServer(final Set<String> failing, final int delayMillis, final AtomicInteger inFlight, final AtomicInteger maxInFlight) throws Exception {
+        return new LocalServer(request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            final String accountId = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+            if (failing.contains(accountId)) {
+                return LocalServer.Response.error(400, "failing");
+            }
+            return LocalServer.Response.json("{\"accountId\":\"" + accountId + "\",\"externalKey\":\"" + accountId + "\"}");
+        });
+    }
+
+    private static Object newAccountApi(final LocalServer server, final int parallelism, final Executor bulkExecutor) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("AccountApi", httpClient, "withBulkParallelism", parallelism, "withBulkExecutor", bulkExecutor);
+    }
+
+    private static List<?> getAccountBulk(final Object accountApi, final List<UUID> accountIds) throws Exception {
+        return (List<?>) accountApi.getClass().getMethod("getAccountBulk", Collection.class, RequestOptions.class).invoke(accountApi, accountIds, RequestOptions.empty());
+    }
+
+    private static List<UUID> newIds(final int count) {
+        final List<UUID> result = new ArrayList<UUID>();
+        for (int i = 0; i < count; i++) {
+            result.add(UUID.randomUUID());
+        }
+        return result;
+    }
+
+    private static Object invoke(final Object target, final String method) throws Exception {
+        return target.getClass().getMethod(method).invoke(target);
+    }
+}
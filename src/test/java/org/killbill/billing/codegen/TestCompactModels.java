@@ -0,0 +1,67 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The compact models (-DcompactModels=true) behave as the default ones: their shared empty containers are only an
+ * implementation detail.
+ */
+public class TestCompactModels {
+
+    private static final String SUBSCRIPTION = "{\"planName\":\"basic-monthly\",\"bundleExternalKey\":\"bundle-1\",\"events\":[]}";
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JodaModule());
+
+    @Test(timeout = 300000)
+    @SuppressWarnings("unchecked")
+    public void testContainers() throws Exception {
+        // Required container
+        final Class<?> roleDefinitionClass = GeneratedJavaClient.loadCompactClass(GeneratedJavaClient.MODEL_PACKAGE + ".RoleDefinition");
+        final Object roleDefinition = roleDefinitionClass.getConstructor().newInstance();
+        ((List<String>) roleDefinitionClass.getMethod("getPermissions").invoke(roleDefinition)).add("account:create");
+        assertEquals(Collections.singletonList("account:create"), roleDefinitionClass.getMethod("getPermissions").invoke(roleDefinition));
+
+        // Empty array read
+        final Class<?> subscriptionClass = GeneratedJavaClient.loadCompactClass(GeneratedJavaClient.MODEL_PACKAGE + ".Subscription");
+        final Class<?> eventClass = GeneratedJavaClient.loadCompactClass(GeneratedJavaClient.MODEL_PACKAGE + ".EventSubscription");
+        final Object subscription = mapper.readValue(SUBSCRIPTION, subscriptionClass);
+        ((List<Object>) subscriptionClass.getMethod("getEvents").invoke(subscription)).add(eventClass.getConstructor().newInstance());
+        assertEquals(1, ((List<Object>) subscriptionClass.getMethod("getEvents").invoke(subscription)).size());
+    }
+
+    @Test(timeout = 300000)
+    public void testSerializationKeepsSharedEmptyContainers() throws Exception {
+        final Class<?> subscriptionClass = GeneratedJavaClient.loadCompactClass(GeneratedJavaClient.MODEL_PACKAGE + ".Subscription");
+        final Object subscription = mapper.readValue(SUBSCRIPTION, subscriptionClass);
+
+        final String json = mapper.writeValueAsString(subscription);
+
+        assertTrue(json, json.contains("\"events\":[]"));
+        final Field events = subscriptionClass.getDeclaredField("events");
+        events.setAccessible(true);
+        assertSame(Collections.emptyList(), events.get(subscription));
+    }
+
+    @Test(timeout = 300000)
+    public void testInterning() throws Exception {
+        final Class<?> subscriptionClass = GeneratedJavaClient.loadCompactClass(GeneratedJavaClient.MODEL_PACKAGE + ".Subscription");
+        final Object first = mapper.readValue(SUBSCRIPTION, subscriptionClass);
+        final Object second = mapper.readValue(SUBSCRIPTION, subscriptionClass);
+
+        // Interned by the generator, unlike the external keys
+        assertSame(subscriptionClass.getMethod("getPlanName").invoke(first), subscriptionClass.getMethod("getPlanName").invoke(second));
+        assertNotSame(subscriptionClass.getMethod("getBundleExternalKey").invoke(first), subscriptionClass.getMethod("getBundleExternalKey").invoke(second));
+    }
+}
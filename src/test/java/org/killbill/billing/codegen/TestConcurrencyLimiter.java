@@ -0,0 +1,131 @@
+package org.killbill.billing.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ConcurrencyLimiter caps the requests in flight per tenant and group, and shrinks the limit of a group when the
+ * server slows down or rejects them.
+ */
+public class TestConcurrencyLimiter {
+
+    private static final int INITIAL_LIMIT = 20;
+
+    @Test(timeout = 300000)
+    public void testShrinksUnderLatency() throws Exception {
+        final AtomicInteger delayMillis = new AtomicInteger(10);
+        try (final LocalServer server = newServer(() -> delayMillis.get(), 200, new AtomicInteger(), new AtomicInteger())) {
+            final Object limiter = newLimiter(null, 0);
+            final Object tenantApi = newTenantApi(server, limiter);
+
+            // Another tenant: the connection is set up without weighing on the usual latency of the tested one
+            getTenant(tenantApi, RequestOptions.builder().withTenantApiKey("warm-up").build());
+            for (int i = 0; i < 50; i++) {
+                getTenant(tenantApi, RequestOptions.empty());
+            }
+            assertEquals(INITIAL_LIMIT, getLimit(limiter));
+
+            delayMillis.set(300);
+            for (int i = 0; i < 10; i++) {
+                getTenant(tenantApi, RequestOptions.empty());
+            }
+            assertTrue(String.valueOf(getLimit(limiter)), getLimit(limiter) < INITIAL_LIMIT);
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testShrinksOnOverload() throws Exception {
+        try (final LocalServer server = newServer(() -> 0, 503, new AtomicInteger(), new AtomicInteger())) {
+            final Object limiter = newLimiter(null, 0);
+            final Object tenantApi = newTenantApi(server, limiter);
+            try {
+                getTenant(tenantApi, RequestOptions.empty());
+            } catch (final Exception expected) {
+                // 503
+            }
+            assertTrue(String.valueOf(getLimit(limiter)), getLimit(limiter) < INITIAL_LIMIT);
+            assertEquals(0, limiter.getClass().getMethod("getInFlight", String.class, String.class).invoke(limiter, null, "Tenant"));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testStaticLimit() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        try (final LocalServer server = newServer(() -> 100, 200, inFlight, maxInFlight)) {
+            final Object limiter = newLimiter("Tenant", 2);
+            final Object tenantApi = newTenantApi(server, limiter);
+
+            final ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> getTenant(tenantApi, RequestOptions.empty())));
+                }
+                for (final Future<Object> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(8, server.getRequests().size());
+            assertEquals(2, maxInFlight.get());
+            assertEquals(2, getLimit(limiter));
+        }
+    }
+
+    // Answers each request after the delay, keeping track of the requests in flight
+    private static LocalServer newServer(final IntSupplier delayMillis, final int status, final AtomicInteger inFlight, final AtomicInteger maxInFlight) throws Exception {
+        return new LocalServer(request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis.getAsInt());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            if (status != 200) {
+                return LocalServer.Response.error(status, "overloaded");
+            }
+            return LocalServer.Response.json("{\"tenantId\":\"" + UUID.randomUUID() + "\",\"externalKey\":\"tenant\"}");
+        });
+    }
+
+    // Adaptive, unless given a static limit
+    private static Object newLimiter(final String staticGroup, final int staticLimit) throws Exception {
+        final Class<?> limiterClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".ConcurrencyLimiter");
+        final Object builder = limiterClass.getMethod("builder").invoke(null);
+        builder.getClass().getMethod("withInitialLimit", int.class).invoke(builder, INITIAL_LIMIT);
+        if (staticGroup != null) {
+            builder.getClass().getMethod("withStaticLimit", String.class, int.class).invoke(builder, staticGroup, staticLimit);
+        }
+        return builder.getClass().getMethod("build").invoke(builder);
+    }
+
+    private static Object newTenantApi(final LocalServer server, final Object limiter) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("TenantApi", httpClient, "withConcurrencyLimiter", limiter);
+    }
+
+    // Of the Tenant group (the tag of getTenant), for the default tenant
+    private static int getLimit(final Object limiter) throws Exception {
+        return (Integer) limiter.getClass().getMethod("getLimit", String.class, String.class).invoke(limiter, null, "Tenant");
+    }
+
+    private static Object getTenant(final Object tenantApi, final RequestOptions requestOptions) throws Exception {
+        return tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, UUID.randomUUID(), requestOptions);
+    }
+}
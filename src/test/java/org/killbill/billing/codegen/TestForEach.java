@@ -0,0 +1,153 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The ...ForEach variants of the generated apis hand each element of the list to the consumer as soon as it is read.
+ */
+public class TestForEach {
+
+    private static final String AUDIT_LOGS = "[{\"changeType\":\"INSERT\",\"changedBy\":\"alice\"},{\"changeType\":\"UPDATE\",\"changedBy\":\"bob\"},{\"changeType\":\"DELETE\",\"changedBy\":\"carol\"}]";
+
+    // Counted down by the consumer of the streamed response
+    private static final CountDownLatch firstElementConsumed = new CountDownLatch(1);
+
+    private static LocalServer server;
+
+    // Per account id: AUDIT_LOGS, an empty list (404), a truncated array, or the audit logs of alice, bob and carol with
+    // the end of the array only sent once the first element was consumed
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new LocalServer(request -> {
+            final String path = request.getPath();
+            final String accountId = path.substring("/1.0/kb/accounts/".length(), path.indexOf("/auditLogs"));
+            switch (accountId.charAt(0)) {
+                case '0':
+                    return LocalServer.Response.error(404, "not found");
+                case '1':
+                    return LocalServer.Response.json(AUDIT_LOGS.substring(0, AUDIT_LOGS.length() / 2));
+                case '2':
+                    return LocalServer.Response.streamed(200, out -> {
+                        final int firstElementEnd = AUDIT_LOGS.indexOf('}') + 1;
+                        out.write(AUDIT_LOGS.substring(0, firstElementEnd + 1).getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                        if (firstElementConsumed.await(10, TimeUnit.SECONDS)) {
+                            out.write(AUDIT_LOGS.substring(firstElementEnd + 1).getBytes(StandardCharsets.UTF_8));
+                        }
+                    }, "Content-Type", "application/json");
+                default:
+                    return LocalServer.Response.json(AUDIT_LOGS);
+            }
+        });
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test(timeout = 300000)
+    public void testSameElementsAsBlockingCall() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final Object api = newApi(apiClass);
+        final UUID accountId = accountId('f');
+
+        final List<?> expected = (List<?>) apiClass.getMethod("getAccountAuditLogs", UUID.class, RequestOptions.class).invoke(api, accountId, RequestOptions.empty());
+        final List<Object> actual = new ArrayList<Object>();
+        apiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(api, accountId, (Consumer<Object>) actual::add, RequestOptions.empty());
+
+        assertEquals(3, actual.size());
+        // The list wrappers (AuditLogs, ...) come with killbill-client-java, bound to its own copy of the generated models
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(Arrays.asList("alice", "bob", "carol"), changedBy(actual));
+    }
+
+    @Test(timeout = 300000)
+    public void testIncremental() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final List<Object> actual = new ArrayList<Object>();
+        final Consumer<Object> action = auditLog -> {
+            actual.add(auditLog);
+            // Before the rest of the array was even sent
+            firstElementConsumed.countDown();
+        };
+        apiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(newApi(apiClass), accountId('2'), action, RequestOptions.empty());
+
+        assertEquals(Arrays.asList("alice", "bob", "carol"), changedBy(actual));
+    }
+
+    @Test(timeout = 300000)
+    public void testNotFound() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final List<Object> actual = new ArrayList<Object>();
+        apiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(newApi(apiClass), accountId('0'), (Consumer<Object>) actual::add, RequestOptions.empty());
+
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test(timeout = 300000)
+    public void testTruncatedBody() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final List<Object> actual = new ArrayList<Object>();
+        try {
+            apiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(newApi(apiClass), accountId('1'), (Consumer<Object>) actual::add, RequestOptions.empty());
+            fail();
+        } catch (final InvocationTargetException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+        }
+        // The elements read before
+        assertEquals(Arrays.asList("alice"), changedBy(actual));
+    }
+
+    @Test(timeout = 300000)
+    public void testConsumerFailure() throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final IllegalStateException failure = new IllegalStateException("consumer");
+        try {
+            apiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(newApi(apiClass), accountId('f'), (Consumer<Object>) auditLog -> {
+                throw failure;
+            }, RequestOptions.empty());
+            fail();
+        } catch (final InvocationTargetException e) {
+            // As is
+            assertTrue(failure == e.getCause());
+        }
+    }
+
+    private static Object newApi(final Class<?> apiClass) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return apiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient);
+    }
+
+    // Telling the server what to answer
+    private static UUID accountId(final char kind) {
+        return UUID.fromString(kind + UUID.randomUUID().toString().substring(1));
+    }
+
+    private static List<String> changedBy(final List<Object> auditLogs) throws Exception {
+        final List<String> result = new ArrayList<String>();
+        for (final Object auditLog : auditLogs) {
+            result.add((String) auditLog.getClass().getMethod("getChangedBy").invoke(auditLog));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+package org.killbill.billing.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * With ApiOptions#withGzip, the GET operations returning a result ask for a compressed response, decompressed by the
+ * apis, errors included.
+ */
+public class TestGzip {
+
+    private static final String TENANT = "{\"tenantId\":\"" + UUID.randomUUID() + "\",\"externalKey\":\"gzipped\"}";
+    private static final String ERROR = "{\"className\":\"java.lang.IllegalStateException\",\"code\":400,\"message\":\"gzipped\",\"causeClassName\":null,\"causeMessage\":null,\"stackTrace\":[]}";
+
+    @Test(timeout = 300000)
+    public void testGzipOff() throws Exception {
+        try (final LocalServer server = newServer(200)) {
+            final Object tenantApi = newTenantApi(server, false);
+            assertEquals("gzipped", getExternalKey(getTenant(tenantApi)));
+            assertNull(server.getRequests().get(0).getHeader("Accept-Encoding"));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testGzipOn() throws Exception {
+        try (final LocalServer server = newServer(200)) {
+            final Object tenantApi = newTenantApi(server, true);
+            assertEquals("gzipped", getExternalKey(getTenant(tenantApi)));
+            assertEquals("gzip", server.getRequests().get(0).getHeader("Accept-Encoding"));
+
+            // Writes: their result is read by the GET following the Location, not compressed
+            final Class<?> tenantClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".Tenant");
+            try {
+                tenantApi.getClass().getMethod("createTenant", tenantClass, RequestOptions.class)
+                         .invoke(tenantApi, tenantClass.getConstructor().newInstance(), RequestOptions.builder().withFollowLocation(false).build());
+            } catch (final InvocationTargetException expected) {
+                // Not a 201
+            }
+            assertEquals("POST", server.getRequests().get(1).getMethod());
+            assertNull(server.getRequests().get(1).getHeader("Accept-Encoding"));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testGzipError() throws Exception {
+        try (final LocalServer server = newServer(400)) {
+            final Object tenantApi = newTenantApi(server, true);
+            try {
+                getTenant(tenantApi);
+                fail();
+            } catch (final InvocationTargetException e) {
+                final KillBillClientException cause = (KillBillClientException) e.getCause();
+                assertNotNull(String.valueOf(cause), cause.getBillingException());
+                assertEquals("gzipped", cause.getBillingException().getMessage());
+                assertEquals(400, cause.getResponse().statusCode());
+            }
+        }
+    }
+
+    // Compressed when asked to
+    private static LocalServer newServer(final int status) throws Exception {
+        return new LocalServer(request -> {
+            final String body = status == 200 ? TENANT : ERROR;
+            if (!"gzip".equals(request.getHeader("Accept-Encoding"))) {
+                return LocalServer.Response.json(status, body);
+            }
+            return new LocalServer.Response(status, gzip(body), "Content-Type", "application/json", "Content-Encoding", "gzip");
+        });
+    }
+
+    private static byte[] gzip(final String body) throws Exception {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (final GZIPOutputStream out = new GZIPOutputStream(result)) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return result.toByteArray();
+    }
+
+    private static Object newTenantApi(final LocalServer server, final boolean gzip) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("TenantApi", httpClient, "withGzip", gzip);
+    }
+
+    private static Object getTenant(final Object tenantApi) throws Exception {
+        return tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, UUID.randomUUID(), RequestOptions.empty());
+    }
+
+    private static String getExternalKey(final Object tenant) throws Exception {
+        return (String) tenant.getClass().getMethod("getExternalKey").invoke(tenant);
+    }
+}
@@ -0,0 +1,162 @@
+package org.killbill.billing.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.CodegenConstants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The list bodies given as an iterator of their elements (...FromIterator in Java, any iterator in python) are sent as
+ * the JSON array of the elements.
+ */
+public class TestIteratorBodies {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        pool = new ForkJoinPool(2);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test(timeout = 300000)
+    public void testFromIterator() throws Exception {
+        try (final LocalServer server = new LocalServer(request -> {
+            if ("POST".equals(request.getMethod())) {
+                return new LocalServer.Response(201, new byte[0], "Location", request.getPath());
+            }
+            return LocalServer.Response.json("[]");
+        })) {
+            final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+            final Object accountApi = GeneratedJavaClient.newApi("AccountApi", httpClient);
+            final UUID accountId = UUID.randomUUID();
+            final Class<?> customFieldsClass = GeneratedJavaClient.loadClass("org.killbill.billing.client.model.CustomFields");
+            final List<Object> customFields = new ArrayList<Object>();
+            for (int i = 0; i < 3; i++) {
+                customFields.add(newCustomField("field-" + i, "value-" + i));
+            }
+
+            @SuppressWarnings("unchecked")
+            final List<Object> list = (List<Object>) customFieldsClass.getConstructor().newInstance();
+            list.addAll(customFields);
+            accountApi.getClass().getMethod("createAccountCustomFields", UUID.class, customFieldsClass, RequestOptions.class)
+                      .invoke(accountApi, accountId, list, RequestOptions.builder().withCreatedBy("test").build());
+            final Iterator<Object> iterator = customFields.iterator();
+            accountApi.getClass().getMethod("createAccountCustomFieldsFromIterator", UUID.class, Iterator.class, RequestOptions.class)
+                      .invoke(accountApi, accountId, iterator, RequestOptions.builder().withCreatedBy("test").build());
+            assertFalse(iterator.hasNext());
+
+            // Same JSON array as the list
+            final List<LocalServer.Request> posts = new ArrayList<LocalServer.Request>();
+            for (final LocalServer.Request request : server.getRequests()) {
+                if ("POST".equals(request.getMethod())) {
+                    posts.add(request);
+                }
+            }
+            assertEquals(2, posts.size());
+            assertEquals(posts.get(0).getPath(), posts.get(1).getPath());
+            assertTrue(posts.get(1).getBody(), posts.get(1).getBody().startsWith("[") && posts.get(1).getBody().contains("\"value-2\""));
+            assertEquals(posts.get(0).getBody(), posts.get(1).getBody());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testPythonUrllib3() throws Exception {
+        assertPythonSent(null, false);
+    }
+
+    @Test(timeout = 300000)
+    public void testPython2() throws Exception {
+        assertPythonSent(null, true);
+    }
+
+    @Test(timeout = 300000)
+    public void testPythonAsyncio() throws Exception {
+        assertPythonSent("asyncio", false);
+    }
+
+    @Test(timeout = 300000)
+    public void testPythonTornado() throws Exception {
+        assertPythonSent("tornado", false);
+    }
+
+    private static Object newCustomField(final String name, final String value) throws Exception {
+        final Object result = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".CustomField").getConstructor().newInstance();
+        result.getClass().getMethod("setName", String.class).invoke(result, name);
+        result.getClass().getMethod("setValue", String.class).invoke(result, value);
+        return result;
+    }
+
+    // Runs iterator_bodies.py against the rest.py generated for the library (null for urllib3), its dependencies stubbed
+    private static void assertPythonSent(final String library, final boolean python2) throws Exception {
+        // Skipped without python3
+        Assume.assumeTrue(run(Arrays.asList("python3", "--version")).startsWith("0\n"));
+
+        final File output = Files.createTempDirectory(new File("target").toPath(), "iterator").toFile();
+        final CodegenConfig config = KillbillCodegen.newConfig("killbill-python", "kbswagger.yaml", output.getPath(), null);
+        if (library != null) {
+            config.setLibrary(library);
+        }
+        final Map<String, String> generatorProperties = Collections.singletonMap(CodegenConstants.SUPPORTING_FILES, "rest.py");
+        KillbillCodegen.newGenerator(pool, new TemplateCache(), generatorProperties)
+                       .opts(KillbillCodegen.newClientOptInput(config, KillbillCodegen.parse(config, "kbswagger.yaml")))
+                       .generate();
+
+        final List<String> command = new ArrayList<String>(Arrays.asList("python3", "src/test/resources/iterator_bodies.py",
+                                                                         new File(output, "killbill/rest.py").getPath(),
+                                                                         library != null ? library : "urllib3"));
+        if (python2) {
+            command.add("python2");
+        }
+        final String result = run(command);
+        assertEquals(result, "0\nOK\n", result);
+    }
+
+    // Exit code, then output
+    private static String run(final List<String> command) throws Exception {
+        final Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (final IOException e) {
+            return e.toString();
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (final InputStream in = process.getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return process.waitFor() + "\n" + new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * KillBillHttpClients returns the same KillBillHttpClient for the same endpoint, shared by the tenants given per request.
+ */
+public class TestKillBillHttpClients {
+
+    private static final String POOL_SIZE = "jdk.httpclient.connectionPoolSize";
+    private static final String KEEP_ALIVE = "jdk.httpclient.keepalive.timeout";
+    private static final String KEEP_ALIVE_H2 = "jdk.httpclient.keepalive.timeout.h2";
+
+    @Test(timeout = 300000)
+    public void testSharedPerEndpoint() throws Exception {
+        // Not a server of the other tests: their clients are not the shared ones
+        final String url = "http://127.0.0.1:1/" + UUID.randomUUID();
+        final KillBillHttpClient client = build(newBuilder(url, "admin", "password"));
+        assertSame(client, build(newBuilder(url, "admin", "password")));
+
+        assertNotSame(client, build(newBuilder(url + "/other", "admin", "password")));
+        assertNotSame(client, build(newBuilder(url, "admin", "other")));
+        final Object withTenant = newBuilder(url, "admin", "password");
+        withTenant.getClass().getMethod("withDefaultTenant", String.class, String.class).invoke(withTenant, "bob", "lazar");
+        assertNotSame(client, build(withTenant));
+        final Object withTimeout = newBuilder(url, "admin", "password");
+        withTimeout.getClass().getMethod("withReadTimeout", Duration.class).invoke(withTimeout, Duration.ofSeconds(30));
+        final KillBillHttpClient timeoutClient = build(withTimeout);
+        assertNotSame(client, timeoutClient);
+        final Object sameTimeout = newBuilder(url, "admin", "password");
+        sameTimeout.getClass().getMethod("withReadTimeout", Duration.class).invoke(sameTimeout, Duration.ofMillis(30000));
+        assertSame(timeoutClient, build(sameTimeout));
+    }
+
+    @Test(timeout = 300000)
+    public void testTenantsPerRequest() throws Exception {
+        try (final LocalServer server = new LocalServer(request -> LocalServer.Response.json("{\"tenantId\":\"" + UUID.randomUUID() + "\",\"apiKey\":\"" + request.getHeader("X-Killbill-ApiKey") + "\"}"))) {
+            final KillBillHttpClient httpClient = build(newBuilder(server.getUrl(), "admin", "password"));
+            final Object tenantApi = GeneratedJavaClient.newApi("TenantApi", httpClient);
+            final Object otherTenantApi = GeneratedJavaClient.newApi("TenantApi", build(newBuilder(server.getUrl(), "admin", "password")));
+
+            for (final String apiKey : new String[]{"bob", "alice"}) {
+                final RequestOptions requestOptions = RequestOptions.builder().withTenantApiKey(apiKey).withTenantApiSecret("secret").build();
+                for (final Object api : new Object[]{tenantApi, otherTenantApi}) {
+                    final Object tenant = api.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(api, UUID.randomUUID(), requestOptions);
+                    assertEquals(apiKey, tenant.getClass().getMethod("getApiKey").invoke(tenant));
+                }
+            }
+            assertEquals(4, server.getRequests().size());
+            for (final LocalServer.Request request : server.getRequests()) {
+                // Credentials of the endpoint
+                assertTrue(String.valueOf(request.getHeader("Authorization")), request.getHeader("Authorization").startsWith("Basic "));
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testConfigureConnectionPool() throws Exception {
+        final String poolSize = System.getProperty(POOL_SIZE);
+        final String keepAlive = System.getProperty(KEEP_ALIVE);
+        final String keepAliveH2 = System.getProperty(KEEP_ALIVE_H2);
+        try {
+            System.clearProperty(POOL_SIZE);
+            System.clearProperty(KEEP_ALIVE);
+            // Set on the command line
+            System.setProperty(KEEP_ALIVE_H2, "42");
+            configureConnectionPool(64, Duration.ofMinutes(5));
+            assertEquals("64", System.getProperty(POOL_SIZE));
+            assertEquals("300", System.getProperty(KEEP_ALIVE));
+            assertEquals("42", System.getProperty(KEEP_ALIVE_H2));
+
+            try {
+                configureConnectionPool(-1, Duration.ofMinutes(5));
+                fail();
+            } catch (final InvocationTargetException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            restore(POOL_SIZE, poolSize);
+            restore(KEEP_ALIVE, keepAlive);
+            restore(KEEP_ALIVE_H2, keepAliveH2);
+        }
+    }
+
+    private static Object newBuilder(final String url, final String username, final String password) throws Exception {
+        final Object builder = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".KillBillHttpClients").getMethod("builder", String.class).invoke(null, url);
+        builder.getClass().getMethod("withCredentials", String.class, String.class).invoke(builder, username, password);
+        return builder;
+    }
+
+    private static KillBillHttpClient build(final Object builder) throws Exception {
+        return (KillBillHttpClient) builder.getClass().getMethod("build").invoke(builder);
+    }
+
+    private static void configureConnectionPool(final int maxIdleConnections, final Duration keepAlive) throws Exception {
+        GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".KillBillHttpClients").getMethod("configureConnectionPool", int.class, Duration.class)
+                           .invoke(null, maxIdleConnections, keepAlive);
+    }
+
+    private static void restore(final String key, final String value) {
+        if (value == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, value);
+        }
+    }
+}
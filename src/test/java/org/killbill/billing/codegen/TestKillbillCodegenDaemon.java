@@ -0,0 +1,147 @@
+package org.killbill.billing.codegen;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+import org.killbill.billing.codegen.languages.SpecFingerprints;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The watch mode regenerates the client on spec and template changes, and only what the change affects.
+ */
+public class TestKillbillCodegenDaemon {
+
+    private static final String MODELS = "src/main/java/org/killbill/billing/client/model/gen/";
+    private static final String APIS = "src/main/java/org/killbill/billing/client/api/gen/";
+    // Older than any generated file
+    private static final long UNTOUCHED = 1000000000000L;
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        System.setProperty(SpecFingerprints.INCREMENTAL, "true");
+        System.setProperty("apiDocs", "false");
+        System.setProperty("apiTests", "false");
+        System.setProperty("modelDocs", "false");
+        System.setProperty("modelTests", "false");
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test(timeout = 300000)
+    public void testRegenerate() throws Exception {
+        final File dir = Files.createTempDirectory(new File("target").toPath(), "daemon").toFile();
+        final File spec = new File(dir, "widgets.yaml");
+        Files.copy(Paths.get("src/test/resources/widgets.yaml"), spec.toPath());
+        // Templates missing from -t come from the classpath
+        final File templates = new File(dir, "templates");
+        assertTrue(templates.mkdir());
+        final File modelTemplate = new File(templates, "model.mustache");
+        Files.copy(Paths.get("src/main/resources/killbill-java/model.mustache"), modelTemplate.toPath());
+        final File output = new File(dir, "output");
+
+        final KillbillCodegenDaemon daemon = new KillbillCodegenDaemon(pool, "killbill-java", spec.getPath(), output.getPath(), templates.getPath(),
+                                                                       Collections.<String, String>emptyMap());
+        final Thread thread = new Thread(() -> {
+            try {
+                daemon.run();
+            } catch (final InterruptedException e) {
+                // Stopped
+            } catch (final Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        try {
+            final File widget = new File(output, MODELS + "Widget.java");
+            final File part = new File(output, MODELS + "Part.java");
+            final File widgetApi = new File(output, APIS + "WidgetApi.java");
+            awaitTrue(() -> widgetApi.isFile() && part.isFile());
+            awaitQuiet(output);
+            for (final File file : new File[]{widget, part, widgetApi}) {
+                assertTrue(file.setLastModified(UNTOUCHED));
+            }
+
+            // Spec: only the files of the changed definitions are written
+            final String specContent = read(spec);
+            write(spec, specContent.replace("  Part:\n    type: \"object\"\n    properties:\n",
+                                            "  Part:\n    type: \"object\"\n    properties:\n      color:\n        type: \"string\"\n"));
+            awaitTrue(() -> read(part).contains("getColor()"));
+            awaitQuiet(output);
+            assertEquals(UNTOUCHED, widgetApi.lastModified());
+
+            // Model template: only the models
+            assertTrue(part.setLastModified(UNTOUCHED));
+            assertTrue(widget.setLastModified(UNTOUCHED));
+            write(modelTemplate, read(modelTemplate) + "// Watched\n");
+            awaitTrue(() -> read(widget).contains("// Watched") && read(part).contains("// Watched"));
+            awaitQuiet(output);
+            assertEquals(UNTOUCHED, widgetApi.lastModified());
+
+            // A broken spec is reported, and the daemon keeps watching
+            write(spec, "swagger: [");
+            write(spec, specContent.replace("operationId: \"getWidget\"", "operationId: \"getWidgetById\""));
+            awaitTrue(() -> read(widgetApi).contains("getWidgetById(") && !read(part).contains("getColor()"));
+            assertTrue(thread.isAlive());
+        } finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static void awaitTrue(final Callable<Boolean> condition) throws Exception {
+        while (!condition.call()) {
+            Thread.sleep(50);
+        }
+    }
+
+    // Until the generation in progress is done, i.e no file was written for a while
+    private static void awaitQuiet(final File dir) throws Exception {
+        long lastModified = lastModified(dir);
+        while (true) {
+            Thread.sleep(500);
+            final long current = lastModified(dir);
+            if (current == lastModified) {
+                return;
+            }
+            lastModified = current;
+        }
+    }
+
+    private static long lastModified(final File dir) throws Exception {
+        try (final Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.mapToLong(file -> file.toFile().lastModified()).max().orElse(0);
+        }
+    }
+
+    private static String read(final File file) throws Exception {
+        return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : "";
+    }
+
+    // Replaced at once, like most editors do
+    private static void write(final File file, final String content) throws Exception {
+        final File tmp = new File(file.getParentFile(), "." + file.getName() + ".tmp");
+        Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
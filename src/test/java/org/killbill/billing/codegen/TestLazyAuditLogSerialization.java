@@ -0,0 +1,43 @@
+package org.killbill.billing.codegen;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The audit logs of the generated models are deserialized on first access: a model is written the same way whether they
+ * were read or not.
+ */
+public class TestLazyAuditLogSerialization {
+
+    private static final String CHANGE_DATE = "2026-10-18T08:54:37.000Z";
+    private static final String TAG = "{\"tagId\":\"a6f2d3b4-3c1e-4a8d-9f0b-1c2d3e4f5a6b\"," +
+                                      "\"objectType\":\"ACCOUNT\"," +
+                                      "\"auditLogs\":[{\"changeType\":\"INSERT\"," +
+                                      "\"changeDate\":\"" + CHANGE_DATE + "\"," +
+                                      "\"objectType\":\"TAG\"," +
+                                      "\"changedBy\":\"admin\"," +
+                                      "\"history\":{\"id\":\"0f1e2d3c-4b5a-4697-8877-665544332211\",\"tableName\":\"TAG\"}}]}";
+
+    // As the one of KillBillHttpClient
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JodaModule());
+
+    @Test(timeout = 300000)
+    public void testSameJsonBeforeAndAfterFirstAccess() throws Exception {
+        final Class<?> tagClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".Tag");
+
+        final String neverRead = mapper.writeValueAsString(mapper.readValue(TAG, tagClass));
+
+        final Object tag = mapper.readValue(TAG, tagClass);
+        tagClass.getMethod("getAuditLogs").invoke(tag);
+        final String read = mapper.writeValueAsString(tag);
+
+        assertEquals(read, neverRead);
+        assertTrue(neverRead, neverRead.contains("\"changeDate\":" + new DateTime(CHANGE_DATE).getMillis()));
+    }
+}
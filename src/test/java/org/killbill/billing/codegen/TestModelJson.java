@@ -0,0 +1,184 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The generated (de)serializers of the models read and write them like the default Jackson handling.
+ */
+public class TestModelJson {
+
+    // Of the nested models
+    private static final int MAX_DEPTH = 2;
+
+    private static final List<Class<?>> models = new ArrayList<Class<?>>();
+    // Same configuration as KillBillHttpClient, bean (de)serializers only
+    private static ObjectMapper defaultMapper;
+    // As the one of KillBillHttpClient, the models being annotated with their generated (de)serializers
+    private static ObjectMapper generatedMapper;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final List<String> classes = GeneratedJavaClient.listClasses(GeneratedJavaClient.MODEL_PACKAGE);
+        for (final String name : classes) {
+            if (classes.contains(name + "Json")) {
+                models.add(GeneratedJavaClient.loadClass(name));
+            }
+        }
+        defaultMapper = new ObjectMapper().registerModule(new JodaModule())
+                                          .setAnnotationIntrospector(new BeanIntrospector());
+        generatedMapper = new ObjectMapper().registerModule(new JodaModule());
+    }
+
+    @Test(timeout = 300000)
+    public void testAllModels() throws Exception {
+        assertTrue(models.size() > 50);
+        for (final Class<?> model : models) {
+            assertTrue(generatedMapper.getSerializerProviderInstance().findValueSerializer(model).getClass().getName().startsWith(model.getName() + "Json$"));
+            assertFalse(defaultMapper.getSerializerProviderInstance().findValueSerializer(model).getClass().getName().startsWith(model.getName() + "Json$"));
+
+            assertSameJson(model.getConstructor().newInstance());
+            assertSameJson(populate(model, 0));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testUnknownProperties() throws Exception {
+        final Class<?> account = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".Account");
+        final String json = "{\"name\":\"john\",\"noSuchProperty\":1}";
+        assertSameFailure(defaultMapper, generatedMapper, json, account);
+
+        final ObjectMapper lenientDefault = defaultMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        final ObjectMapper lenientGenerated = generatedMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        assertEquals(lenientDefault.readValue(json, account), lenientGenerated.readValue(json, account));
+    }
+
+    @Test(timeout = 300000)
+    public void testUnknownEnumValue() throws Exception {
+        final Class<?> account = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".Account");
+        assertSameFailure(defaultMapper, generatedMapper, "{\"currency\":\"XXX_NO_SUCH_CURRENCY\"}", account);
+    }
+
+    private static void assertSameJson(final Object value) throws Exception {
+        final String expected = defaultMapper.writeValueAsString(value);
+        assertEquals(value.getClass().getSimpleName(), expected, generatedMapper.writeValueAsString(value));
+
+        final Object expectedValue = defaultMapper.readValue(expected, value.getClass());
+        final Object actualValue = generatedMapper.readValue(expected, value.getClass());
+        assertEquals(expected, expectedValue, actualValue);
+        assertEquals(expected, defaultMapper.writeValueAsString(actualValue));
+    }
+
+    private static void assertSameFailure(final ObjectMapper expectedMapper, final ObjectMapper actualMapper, final String json, final Class<?> type) throws Exception {
+        try {
+            expectedMapper.readValue(json, type);
+            fail();
+        } catch (final Exception expected) {
+            try {
+                actualMapper.readValue(json, type);
+                fail();
+            } catch (final Exception actual) {
+                assertEquals(expected.getClass(), actual.getClass());
+            }
+        }
+    }
+
+    // Every property set, through the setters
+    private static Object populate(final Class<?> model, final int depth) throws Exception {
+        final Object result = model.getConstructor().newInstance();
+        for (final Method method : model.getMethods()) {
+            if (method.getName().startsWith("set") && method.getParameterTypes().length == 1 && !Modifier.isStatic(method.getModifiers())
+                && method.getDeclaringClass().getName().startsWith(GeneratedJavaClient.MODEL_PACKAGE)) {
+                method.invoke(result, sample(method.getGenericParameterTypes()[0], depth));
+            }
+        }
+        return result;
+    }
+
+    private static Object sample(final Type type, final int depth) throws Exception {
+        if (type instanceof ParameterizedType) {
+            final ParameterizedType parameterized = (ParameterizedType) type;
+            final Type[] arguments = parameterized.getActualTypeArguments();
+            if (List.class.isAssignableFrom((Class<?>) parameterized.getRawType())) {
+                final List<Object> list = new ArrayList<Object>();
+                list.add(sample(arguments[0], depth + 1));
+                return list;
+            } else if (Map.class.isAssignableFrom((Class<?>) parameterized.getRawType())) {
+                final Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                map.put("key", sample(arguments[1], depth + 1));
+                return map;
+            }
+            return null;
+        }
+        if (!(type instanceof Class) || type == Object.class) {
+            // Type variable or Object (AuditLog history), read back as a map
+            final Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("key", "value");
+            return map;
+        }
+        final Class<?> clazz = (Class<?>) type;
+        if (clazz == String.class) {
+            return "value";
+        } else if (clazz == UUID.class) {
+            return UUID.fromString("b4f9b4b4-3e2c-4d8e-9f0e-2c2a7d0c5a11");
+        } else if (clazz == Integer.class || clazz == int.class) {
+            return 7;
+        } else if (clazz == Long.class || clazz == long.class) {
+            return 7L;
+        } else if (clazz == Boolean.class || clazz == boolean.class) {
+            return true;
+        } else if (clazz == BigDecimal.class) {
+            return new BigDecimal("12.50");
+        } else if (clazz == DateTime.class) {
+            return new DateTime(2024, 1, 2, 3, 4, 5, DateTimeZone.UTC);
+        } else if (clazz == LocalDate.class) {
+            return new LocalDate(2024, 1, 2);
+        } else if (clazz.isEnum()) {
+            return clazz.getEnumConstants()[0];
+        } else if (models.contains(clazz)) {
+            return depth < MAX_DEPTH ? populate(clazz, depth + 1) : clazz.getConstructor().newInstance();
+        }
+        assertFalse("Unexpected property type " + clazz, clazz.getName().startsWith("org.killbill"));
+        return null;
+    }
+
+    // Ignores the @JsonSerialize/@JsonDeserialize of the models, i.e their generated (de)serializers
+    private static final class BeanIntrospector extends JacksonAnnotationIntrospector {
+
+        @Override
+        public Object findSerializer(final Annotated annotated) {
+            return annotated instanceof AnnotatedClass ? null : super.findSerializer(annotated);
+        }
+
+        @Override
+        public Object findDeserializer(final Annotated annotated) {
+            return annotated instanceof AnnotatedClass ? null : super.findDeserializer(annotated);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.killbill.billing.codegen;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The ...ForEach and ...Stream (paginated) variants are measured like the other ones: one operation per request sent.
+ */
+public class TestOperationMeasurement {
+
+    private static final String NEXT_PAGE_URI = "/1.0/kb/accounts/pagination?offset=1&limit=1";
+
+    private static LocalServer server;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = new LocalServer(request -> {
+            final String target = request.getTarget();
+            if (target.startsWith("/1.0/kb/accounts/pagination") && target.contains("offset=0")) {
+                return LocalServer.Response.json("[{\"accountId\":\"" + UUID.randomUUID() + "\",\"name\":\"first\"}]",
+                                                 "X-Killbill-Pagination-CurrentOffset", "0",
+                                                 "X-Killbill-Pagination-NextOffset", "1",
+                                                 "X-Killbill-Pagination-NextPageUri", NEXT_PAGE_URI);
+            } else if (target.startsWith("/1.0/kb/accounts/pagination")) {
+                return LocalServer.Response.json("[{\"accountId\":\"" + UUID.randomUUID() + "\",\"name\":\"last\"}]",
+                                                 "X-Killbill-Pagination-CurrentOffset", "1");
+            } else {
+                return LocalServer.Response.json("[{\"changeType\":\"INSERT\"},{\"changeType\":\"UPDATE\"},{\"changeType\":\"DELETE\"}]");
+            }
+        });
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test(timeout = 300000)
+    public void testForEachAndPaginatedStream() throws Exception {
+        final List<String> operations = new CopyOnWriteArrayList<String>();
+        final Class<?> accountApiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final Object accountApi = newAccountApi(operations);
+
+        final List<Object> auditLogs = new ArrayList<Object>();
+        final Consumer<Object> action = auditLogs::add;
+        accountApiClass.getMethod("getAccountAuditLogsForEach", UUID.class, Consumer.class, RequestOptions.class).invoke(accountApi, UUID.randomUUID(), action, RequestOptions.empty());
+        assertEquals(3, auditLogs.size());
+        assertEquals(Arrays.asList("getAccountAuditLogs:200"), operations);
+
+        operations.clear();
+        try (final Stream<?> accounts = (Stream<?>) accountApiClass.getMethod("getAccountsStream", RequestOptions.class).invoke(accountApi, RequestOptions.empty())) {
+            assertEquals(2, accounts.count());
+        }
+        // One per page fetched
+        assertEquals(Arrays.asList("getAccounts:200", "getAccounts:200"), operations);
+    }
+
+    // Api recording the operation id and status of each measured operation
+    private static Object newAccountApi(final List<String> operations) throws Exception {
+        final Class<?> listenerClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".OperationListener");
+        final Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[]{listenerClass}, (proxy, method, args) -> {
+            if (!"onOperation".equals(method.getName())) {
+                return method.getName().equals("equals") ? proxy == args[0] : method.getName().equals("hashCode") ? System.identityHashCode(proxy) : "listener";
+            }
+            final Object metrics = args[0];
+            operations.add(metrics.getClass().getMethod("getOperationId").invoke(metrics) + ":" + metrics.getClass().getMethod("getStatusCode").invoke(metrics));
+            return null;
+        });
+
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("AccountApi", httpClient, "withOperationListener", listener);
+    }
+}
@@ -0,0 +1,166 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The ...Stream variants of the generated apis follow the pages, prefetching the next one only, and fail with a
+ * CompletionException caused by the KillBillClientException.
+ */
+public class TestPagination {
+
+    private static final Pattern OFFSET = Pattern.compile("[?&]offset=(\\d+)");
+    private static final int PAGE_SIZE = 2;
+    private static final int RECORDS = 10;
+
+    @Test(timeout = 300000)
+    public void testAllPages() throws Exception {
+        try (final LocalServer server = newServer(-1)) {
+            final List<String> names = accountsStream(server).map(TestPagination::getName).collect(Collectors.toList());
+
+            final List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < RECORDS; i++) {
+                expected.add("account-" + i);
+            }
+            assertEquals(expected, names);
+            assertEquals(Arrays.asList(0, 2, 4, 6, 8), offsets(server));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testNextPagePrefetched() throws Exception {
+        try (final LocalServer server = newServer(-1);
+             final Stream<?> accounts = accountsStream(server)) {
+            final Iterator<?> iterator = accounts.iterator();
+            assertEquals("account-0", getName(iterator.next()));
+
+            // Requested while the first page is consumed
+            while (!offsets(server).contains(2)) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(200);
+            // ... but not the one after
+            assertEquals(Arrays.asList(0, 2), offsets(server));
+
+            assertEquals("account-1", getName(iterator.next()));
+            assertEquals("account-2", getName(iterator.next()));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testFailingPage() throws Exception {
+        try (final LocalServer server = newServer(4)) {
+            final List<String> names = new ArrayList<String>();
+            try {
+                accountsStream(server).forEach(account -> names.add(getName(account)));
+                fail();
+            } catch (final CompletionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+            }
+            // The items of the pages before
+            assertEquals(4, names.size());
+            assertEquals(Arrays.asList(0, 2, 4), offsets(server));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testFailingFirstPage() throws Exception {
+        try (final LocalServer server = newServer(0)) {
+            try {
+                accountsStream(server).findFirst();
+                fail();
+            } catch (final CompletionException e) {
+                assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testClosedEarly() throws Exception {
+        try (final LocalServer server = newServer(-1)) {
+            final Stream<?> accounts = accountsStream(server);
+            final Iterator<?> iterator = accounts.iterator();
+            assertEquals("account-0", getName(iterator.next()));
+            accounts.close();
+
+            assertFalse(iterator.hasNext());
+            assertFalse(offsets(server).contains(4));
+        }
+    }
+
+    // Pages of PAGE_SIZE accounts out of RECORDS, a 500 for the page at failingOffset
+    private static LocalServer newServer(final int failingOffset) throws Exception {
+        return new LocalServer(request -> {
+            final int offset = offset(request);
+            if (offset == failingOffset) {
+                return LocalServer.Response.error(500, "boom");
+            }
+            final StringBuilder body = new StringBuilder("[");
+            for (int i = offset; i < Math.min(offset + PAGE_SIZE, RECORDS); i++) {
+                body.append(i == offset ? "" : ",").append("{\"name\":\"account-").append(i).append("\"}");
+            }
+            body.append("]");
+            final int nextOffset = offset + PAGE_SIZE;
+            final List<String> headers = new ArrayList<String>();
+            headers.add("X-Killbill-Pagination-CurrentOffset");
+            headers.add(String.valueOf(offset));
+            headers.add("X-Killbill-Pagination-TotalNbRecords");
+            headers.add(String.valueOf(RECORDS));
+            headers.add("X-Killbill-Pagination-MaxNbRecords");
+            headers.add(String.valueOf(RECORDS));
+            if (nextOffset < RECORDS) {
+                headers.add("X-Killbill-Pagination-NextOffset");
+                headers.add(String.valueOf(nextOffset));
+                headers.add("X-Killbill-Pagination-NextPageUri");
+                headers.add("/1.0/kb/accounts/pagination?offset=" + nextOffset + "&limit=" + PAGE_SIZE);
+            }
+            return LocalServer.Response.json(body.toString(), headers.toArray(new String[0]));
+        });
+    }
+
+    private static Stream<?> accountsStream(final LocalServer server) throws Exception {
+        final Class<?> apiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".AccountApi");
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        final Object api = apiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient);
+        try {
+            return (Stream<?>) apiClass.getMethod("getAccountsStream", RequestOptions.class).invoke(api, RequestOptions.empty());
+        } catch (final InvocationTargetException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    private static String getName(final Object account) {
+        try {
+            return (String) account.getClass().getMethod("getName").invoke(account);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int offset(final LocalServer.Request request) {
+        final Matcher matcher = OFFSET.matcher(request.getTarget());
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static List<Integer> offsets(final LocalServer server) {
+        return server.getRequests().stream().map(TestPagination::offset).collect(Collectors.toList());
+    }
+}
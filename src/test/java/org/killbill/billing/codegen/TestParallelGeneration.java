@@ -0,0 +1,122 @@
+package org.killbill.billing.codegen;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+
+import io.swagger.codegen.ClientOptInput;
+import io.swagger.codegen.DefaultGenerator;
+import io.swagger.codegen.config.CodegenConfigurator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * KillbillGenerator writes the exact same files as DefaultGenerator.
+ */
+public class TestParallelGeneration {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test(timeout = 300000)
+    public void testJava() throws Exception {
+        assertSameOutput("killbill-java", "kbswagger.yaml");
+    }
+
+    @Test(timeout = 300000)
+    public void testPython() throws Exception {
+        assertSameOutput("killbill-python", "kbswagger.yaml");
+    }
+
+    @Test(timeout = 300000)
+    public void testSelection() throws Exception {
+        final File output = Files.createTempDirectory(new File("target").toPath(), "parallel").toFile();
+        final Map<String, String> generatorProperties = new TreeMap<>();
+        generatorProperties.put(KillbillGenerator.MODELS, "Widget,Part");
+        KillbillCodegen.generate(pool, "killbill-java", "src/test/resources/widgets.yaml", output.getPath(), null, generatorProperties);
+
+        final Map<String, byte[]> files = read(output);
+        // Both model templates
+        assertEquals(Arrays.asList("Part.java", "PartJson.java", "Widget.java", "WidgetJson.java"), files.keySet().stream()
+                                                                                                     .filter(name -> name.endsWith(".java"))
+                                                                                                     .map(name -> name.substring(name.lastIndexOf('/') + 1))
+                                                                                                     .collect(Collectors.toList()));
+        assertTrue(files.containsKey("src/main/java/org/killbill/billing/client/model/gen/Widget.java"));
+        // Neither the apis nor the supporting files
+        assertFalse(files.keySet().stream().anyMatch(name -> name.contains("/api/gen/")));
+    }
+
+    @Test(timeout = 300000)
+    public void testSeveralLanguages() throws Exception {
+        final File java = Files.createTempDirectory(new File("target").toPath(), "parallel").toFile();
+        final File python = Files.createTempDirectory(new File("target").toPath(), "parallel").toFile();
+        KillbillCodegen.generate(pool, Arrays.asList("killbill-java", "killbill-python"), "kbswagger.yaml", Arrays.asList(java.getPath(), python.getPath()),
+                                 Collections.<String, String>emptyMap());
+
+        assertSameFiles(generateSerial("killbill-java", "kbswagger.yaml"), java);
+        assertSameFiles(generateSerial("killbill-python", "kbswagger.yaml"), python);
+    }
+
+    private static void assertSameOutput(final String lang, final String spec) throws IOException {
+        final File parallel = Files.createTempDirectory(new File("target").toPath(), "parallel").toFile();
+        KillbillCodegen.generate(pool, lang, spec, parallel.getPath(), null, Collections.<String, String>emptyMap());
+        assertSameFiles(generateSerial(lang, spec), parallel);
+    }
+
+    // Same as the swagger-codegen cli
+    private static File generateSerial(final String lang, final String spec) throws IOException {
+        final File serial = Files.createTempDirectory(new File("target").toPath(), "serial").toFile();
+        final CodegenConfigurator configurator = new CodegenConfigurator();
+        configurator.setLang(lang);
+        configurator.setInputSpec(spec);
+        configurator.setOutputDir(serial.getPath());
+        final ClientOptInput input = configurator.toClientOptInput();
+        new DefaultGenerator().opts(input).generate();
+        return serial;
+    }
+
+    private static void assertSameFiles(final File expectedDir, final File actualDir) throws IOException {
+        final Map<String, byte[]> expected = read(expectedDir);
+        final Map<String, byte[]> actual = read(actualDir);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (final Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            assertTrue(entry.getKey(), Arrays.equals(entry.getValue(), actual.get(entry.getKey())));
+        }
+    }
+
+    // Relative path -> content
+    private static Map<String, byte[]> read(final File dir) throws IOException {
+        final Map<String, byte[]> result = new TreeMap<>();
+        try (final Stream<Path> files = Files.walk(dir.toPath())) {
+            for (final Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                result.put(dir.toPath().relativize(file).toString().replace(File.separatorChar, '/'), Files.readAllBytes(file));
+            }
+        }
+        return result;
+    }
+}
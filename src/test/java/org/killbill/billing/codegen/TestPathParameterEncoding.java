@@ -0,0 +1,46 @@
+package org.killbill.billing.codegen;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The path parameters are percent-encoded as path segments (RFC 3986) by the generated apis.
+ */
+public class TestPathParameterEncoding {
+
+    private static LocalServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new LocalServer(request -> LocalServer.Response.json("{\"key\":\"PLUGIN_CONFIG\",\"values\":[]}"));
+    }
+
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.close();
+    }
+
+    @Test(timeout = 300000)
+    public void testPathSegments() throws Exception {
+        assertEquals("/1.0/kb/tenants/uploadPluginConfig/my%20plugin%2Fv1", getPluginConfiguration("my plugin/v1"));
+        // The value is taken as is, not as an already encoded segment
+        assertEquals("/1.0/kb/tenants/uploadPluginConfig/a%2520b%2Bc", getPluginConfiguration("a%20b+c"));
+        assertEquals("/1.0/kb/tenants/uploadPluginConfig/caf%C3%A9-1.0_~", getPluginConfiguration("caf\u00e9-1.0_~"));
+    }
+
+    private String getPluginConfiguration(final String pluginName) throws Exception {
+        final Class<?> tenantApiClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".TenantApi");
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        final Object tenantApi = tenantApiClass.getConstructor(KillBillHttpClient.class).newInstance(httpClient);
+        tenantApiClass.getMethod("getPluginConfiguration", String.class, RequestOptions.class).invoke(tenantApi, pluginName, RequestOptions.empty());
+        final List<LocalServer.Request> requests = server.getRequests();
+        return requests.get(requests.size() - 1).getTarget();
+    }
+}
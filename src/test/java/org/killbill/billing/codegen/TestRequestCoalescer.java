@@ -0,0 +1,173 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The identical GET requests in flight of the apis sharing a RequestCoalescer are sent once, and each caller gets its
+ * own objects (or the same failure).
+ */
+public class TestRequestCoalescer {
+
+    private static final int CALLERS = 8;
+
+    @Test(timeout = 300000)
+    public void testIdenticalRequestsMerged() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final LocalServer server = newServer(release, 200)) {
+            final Object coalescer = newRequestCoalescer();
+            final Object tenantApi = newTenantApi(server, null, coalescer);
+            final UUID tenantId = UUID.randomUUID();
+
+            final List<Object> results = callConcurrently(release, () -> getTenant(tenantApi, tenantId));
+            assertEquals(1, server.getRequests().size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(results.get(0), results.get(i));
+                // The models are mutable: each caller gets its own
+                for (int j = 0; j < i; j++) {
+                    assertTrue(results.get(i) != results.get(j));
+                }
+            }
+
+            // Nothing kept once received
+            getTenant(tenantApi, tenantId);
+            assertEquals(2, server.getRequests().size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testFailureShared() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final LocalServer server = newServer(release, 500)) {
+            final Object tenantApi = newTenantApi(server, null, newRequestCoalescer());
+            final UUID tenantId = UUID.randomUUID();
+
+            final List<Object> results = callConcurrently(release, () -> {
+                try {
+                    getTenant(tenantApi, tenantId);
+                    return null;
+                } catch (final InvocationTargetException e) {
+                    return e.getCause();
+                }
+            });
+            assertEquals(1, server.getRequests().size());
+            for (final Object result : results) {
+                assertTrue(String.valueOf(result), result instanceof KillBillClientException);
+                assertEquals(500, ((KillBillClientException) result).getBillingException().getCode().intValue());
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testCacheMissesMerged() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (final LocalServer server = newServer(release, 200)) {
+            final Object responseCache = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".ResponseCache")
+                                                            .getConstructor(int.class, Duration.class).newInstance(100, Duration.ofMinutes(5));
+            final Object tenantApi = newTenantApi(server, responseCache, newRequestCoalescer());
+
+            final List<Object> results = callConcurrently(release, () -> tenantApi.getClass().getMethod("getPluginConfiguration", String.class, RequestOptions.class)
+                                                                                  .invoke(tenantApi, "plugin", RequestOptions.empty()));
+            assertEquals(1, server.getRequests().size());
+            for (final Object result : results) {
+                assertEquals(results.get(0), result);
+            }
+        }
+    }
+
+    // The first caller sends the request, held by the server until the others wait for it
+    private static List<Object> callConcurrently(final CountDownLatch release, final Callable<Object> call) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            final AtomicInteger started = new AtomicInteger();
+            final List<Thread> threads = new ArrayList<Thread>();
+            final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < CALLERS; i++) {
+                futures.add(executor.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    started.incrementAndGet();
+                    return call.call();
+                }));
+            }
+            // All but the one sending the request waiting for it
+            while (started.get() < CALLERS || countWaiting(threads) < CALLERS - 1) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            final List<Object> results = new ArrayList<Object>();
+            for (final Future<Object> future : futures) {
+                results.add(future.get(1, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Threads joining the request of another one
+    private static int countWaiting(final List<Thread> threads) {
+        int result = 0;
+        synchronized (threads) {
+            for (final Thread thread : threads) {
+                for (final StackTraceElement frame : thread.getStackTrace()) {
+                    if (frame.getClassName().endsWith(".ApiRequests") && "join".equals(frame.getMethodName())) {
+                        result++;
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // A new Tenant (or TenantKeyValue) per request, once released
+    private static LocalServer newServer(final CountDownLatch release, final int status) throws Exception {
+        return new LocalServer(request -> {
+            if (!release.await(1, TimeUnit.MINUTES)) {
+                fail("Never released");
+            }
+            if (status != 200) {
+                return LocalServer.Response.error(status, "failed");
+            }
+            if (request.getPath().startsWith("/1.0/kb/tenants/uploadPluginConfig/")) {
+                return LocalServer.Response.json("{\"key\":\"PLUGIN_CONFIG_plugin\",\"values\":[\"" + UUID.randomUUID() + "\"]}");
+            }
+            return LocalServer.Response.json("{\"tenantId\":\"" + UUID.randomUUID() + "\",\"externalKey\":\"tenant\"}");
+        });
+    }
+
+    private static Object newRequestCoalescer() throws Exception {
+        return GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".RequestCoalescer").getConstructor().newInstance();
+    }
+
+    private static Object newTenantApi(final LocalServer server, final Object responseCache, final Object requestCoalescer) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("TenantApi", httpClient, "withResponseCache", responseCache, "withRequestCoalescer", requestCoalescer);
+    }
+
+    private static Object getTenant(final Object tenantApi, final UUID tenantId) throws Exception {
+        return tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, tenantId, RequestOptions.empty());
+    }
+}
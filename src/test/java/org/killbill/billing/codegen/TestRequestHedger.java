@@ -0,0 +1,111 @@
+package org.killbill.billing.codegen;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The RequestHedger sends the slow or failing requests of the idempotent operations again, within its budget, and
+ * never the ones of the other operations.
+ */
+public class TestRequestHedger {
+
+    // Latencies the hedger needs before hedging an operation
+    private static final int SAMPLES = 32;
+
+    @Test(timeout = 300000)
+    public void testHedgesWithinBudget() throws Exception {
+        final AtomicInteger delayMillis = new AtomicInteger(5);
+        try (final LocalServer server = newServer(delayMillis, 200)) {
+            // No refill: two hedges at most
+            final Object hedger = newHedger(0, 2, 0);
+            final Object tenantApi = newTenantApi(server, hedger);
+
+            for (int i = 0; i < SAMPLES; i++) {
+                getTenant(tenantApi);
+            }
+            assertNotNull(hedger.getClass().getMethod("getDelay", String.class).invoke(hedger, "getTenant"));
+            assertEquals(SAMPLES, server.getRequests().size());
+
+            delayMillis.set(500);
+            for (int i = 0; i < 5; i++) {
+                getTenant(tenantApi);
+            }
+            // The hedges lose the race, but are received before the responses of the requests they hedge
+            assertEquals(SAMPLES + 5 + 2, server.getRequests().size());
+            assertEquals(0, hedger.getClass().getMethod("getBudget").invoke(hedger));
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testRetriesIdempotentOnly() throws Exception {
+        try (final LocalServer server = newServer(new AtomicInteger(0), 503)) {
+            final Object tenantApi = newTenantApi(server, newHedger(0.1, 10, 1));
+
+            // GET: retried once
+            assertFailed(() -> getTenant(tenantApi));
+            assertEquals(2, server.getRequests().size());
+
+            // POST, not marked as idempotent: sent once
+            final Class<?> tenantClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.MODEL_PACKAGE + ".Tenant");
+            assertFailed(() -> tenantApi.getClass().getMethod("createTenant", tenantClass, RequestOptions.class)
+                                        .invoke(tenantApi, tenantClass.getConstructor().newInstance(), RequestOptions.empty()));
+            assertEquals(3, server.getRequests().size());
+            assertEquals("POST", server.getRequests().get(2).getMethod());
+        }
+    }
+
+    private static void assertFailed(final Call call) throws Exception {
+        try {
+            call.call();
+            fail();
+        } catch (final InvocationTargetException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+        }
+    }
+
+    // Answers each request after the delay
+    private static LocalServer newServer(final AtomicInteger delayMillis, final int status) throws Exception {
+        return new LocalServer(request -> {
+            Thread.sleep(delayMillis.get());
+            if (status != 200) {
+                return LocalServer.Response.error(status, "unavailable");
+            }
+            return LocalServer.Response.json("{\"tenantId\":\"" + UUID.randomUUID() + "\",\"externalKey\":\"tenant\"}");
+        });
+    }
+
+    private static Object newHedger(final double budgetRatio, final int budgetBurst, final int maxRetries) throws Exception {
+        final Class<?> hedgerClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".RequestHedger");
+        final Object builder = hedgerClass.getMethod("builder").invoke(null);
+        builder.getClass().getMethod("withBudget", double.class, int.class).invoke(builder, budgetRatio, budgetBurst);
+        builder.getClass().getMethod("withMaxRetries", int.class).invoke(builder, maxRetries);
+        builder.getClass().getMethod("withMinDelay", Duration.class).invoke(builder, Duration.ofMillis(50));
+        return builder.getClass().getMethod("build").invoke(builder);
+    }
+
+    private static Object newTenantApi(final LocalServer server, final Object hedger) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("TenantApi", httpClient, "withRequestHedger", hedger);
+    }
+
+    private static Object getTenant(final Object tenantApi) throws Exception {
+        return tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, UUID.randomUUID(), RequestOptions.empty());
+    }
+
+    private interface Call {
+
+        Object call() throws Exception;
+    }
+}
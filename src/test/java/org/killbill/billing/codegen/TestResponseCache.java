@@ -0,0 +1,136 @@
+package org.killbill.billing.codegen;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The configuration reads of the generated apis go through the ResponseCache given to them: fresh responses are
+ * returned without a request, the other ones are revalidated, and the configuration writes invalidate them.
+ */
+public class TestResponseCache {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Test(timeout = 300000)
+    public void testFreshHit() throws Exception {
+        try (final LocalServer server = newServer(ETAG, null)) {
+            final Object tenantApi = newTenantApi(server, newResponseCache(Duration.ofMinutes(5)));
+
+            final Object first = getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            final Object second = getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            assertEquals(1, server.getRequests().size());
+            assertEquals(first, second);
+            // The models are mutable: each call gets its own
+            assertTrue(first != second);
+
+            // Another uri, another tenant
+            getPluginConfiguration(tenantApi, "other", RequestOptions.empty());
+            getPluginConfiguration(tenantApi, "plugin", RequestOptions.builder().withTenantApiKey("key").withTenantApiSecret("secret").build());
+            assertEquals(3, server.getRequests().size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testRevalidation() throws Exception {
+        try (final LocalServer server = newServer(ETAG, null)) {
+            final Object tenantApi = newTenantApi(server, newResponseCache(Duration.ZERO));
+
+            final Object first = getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            final Object second = getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            assertEquals(2, server.getRequests().size());
+            assertNull(server.getRequests().get(0).getHeader("If-None-Match"));
+            assertEquals(ETAG, server.getRequests().get(1).getHeader("If-None-Match"));
+            // From the 304
+            assertEquals(first, second);
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testNoStore() throws Exception {
+        try (final LocalServer server = newServer(null, "no-store")) {
+            final Object tenantApi = newTenantApi(server, newResponseCache(Duration.ofMinutes(5)));
+
+            getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            assertEquals(2, server.getRequests().size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testInvalidatedByWrites() throws Exception {
+        try (final LocalServer server = newServer(ETAG, null)) {
+            final Object responseCache = newResponseCache(Duration.ofMinutes(5));
+            final Object tenantApi = newTenantApi(server, responseCache);
+
+            getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            assertEquals(1, size(responseCache));
+            tenantApi.getClass().getMethod("uploadPluginConfiguration", String.class, String.class, RequestOptions.class)
+                     .invoke(tenantApi, "plugin", "config", RequestOptions.builder().withCreatedBy("test").build());
+            assertEquals(0, size(responseCache));
+
+            final int requests = server.getRequests().size();
+            getPluginConfiguration(tenantApi, "plugin", RequestOptions.empty());
+            assertEquals(requests + 1, server.getRequests().size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testOnlyConfigurationReads() throws Exception {
+        try (final LocalServer server = newServer(ETAG, null)) {
+            final Object responseCache = newResponseCache(Duration.ofMinutes(5));
+            final Object tenantApi = newTenantApi(server, responseCache);
+
+            final UUID tenantId = UUID.randomUUID();
+            assertNotNull(tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, tenantId, RequestOptions.empty()));
+            tenantApi.getClass().getMethod("getTenant", UUID.class, RequestOptions.class).invoke(tenantApi, tenantId, RequestOptions.empty());
+            assertEquals(2, server.getRequests().size());
+            assertEquals(0, size(responseCache));
+        }
+    }
+
+    // A TenantKeyValue (or Tenant) per GET, 304 when the ETag matches, the uploads redirected to the GET
+    private static LocalServer newServer(final String etag, final String cacheControl) throws Exception {
+        return new LocalServer(request -> {
+            if ("POST".equals(request.getMethod())) {
+                return new LocalServer.Response(201, new byte[0], "Location", request.getPath());
+            }
+            if (etag != null && etag.equals(request.getHeader("If-None-Match"))) {
+                return new LocalServer.Response(304, new byte[0], "ETag", etag);
+            }
+            final String body = request.getPath().startsWith("/1.0/kb/tenants/uploadPluginConfig/") ?
+                                "{\"key\":\"PLUGIN_CONFIG_" + request.getPath().substring(request.getPath().lastIndexOf('/') + 1) + "\",\"values\":[\"" + UUID.randomUUID() + "\"]}" :
+                                "{\"tenantId\":\"" + UUID.randomUUID() + "\",\"externalKey\":\"tenant\"}";
+            if (etag != null) {
+                return LocalServer.Response.json(body, "ETag", etag);
+            }
+            return cacheControl != null ? LocalServer.Response.json(body, "Cache-Control", cacheControl) : LocalServer.Response.json(body);
+        });
+    }
+
+    private static Object newResponseCache(final Duration ttl) throws Exception {
+        return GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".ResponseCache").getConstructor(int.class, Duration.class).newInstance(100, ttl);
+    }
+
+    private static Object newTenantApi(final LocalServer server, final Object responseCache) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("TenantApi", httpClient, "withResponseCache", responseCache);
+    }
+
+    private static Object getPluginConfiguration(final Object tenantApi, final String pluginName, final RequestOptions requestOptions) throws Exception {
+        return tenantApi.getClass().getMethod("getPluginConfiguration", String.class, RequestOptions.class).invoke(tenantApi, pluginName, requestOptions);
+    }
+
+    private static int size(final Object responseCache) throws Exception {
+        return (Integer) responseCache.getClass().getMethod("size").invoke(responseCache);
+    }
+}
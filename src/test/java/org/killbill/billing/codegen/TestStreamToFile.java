@@ -0,0 +1,128 @@
+package org.killbill.billing.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The binary responses (exportDataForAccount) are transferred to a file, or read from a channel, as they arrive.
+ */
+public class TestStreamToFile {
+
+    // Several buffers of the transfer
+    private static final int SIZE = 1024 * 1024 + 7;
+
+    @Test(timeout = 300000)
+    public void testToFile() throws Exception {
+        final byte[] export = newExport();
+        try (final LocalServer server = newServer(export, 200, false)) {
+            final Object exportApi = newExportApi(server);
+            final Path file = Files.createTempFile("export", ".bin");
+            try {
+                // Truncated
+                Files.write(file, new byte[SIZE * 2]);
+                assertEquals(200, exportDataForAccount(exportApi, file));
+                assertArrayEquals(export, Files.readAllBytes(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testStreamedToFile() throws Exception {
+        final byte[] export = newExport();
+        try (final LocalServer server = newServer(export, 200, true)) {
+            final Object exportApi = newExportApi(server);
+            final Path file = Files.createTempFile("export", ".bin");
+            try {
+                assertEquals(200, exportDataForAccount(exportApi, file));
+                assertArrayEquals(export, Files.readAllBytes(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testNoContent() throws Exception {
+        try (final LocalServer server = newServer(new byte[0], 204, false)) {
+            final Object exportApi = newExportApi(server);
+            final Path file = Files.createTempFile("export", ".bin");
+            try {
+                Files.write(file, new byte[]{1, 2, 3});
+                assertEquals(0, exportDataForAccount(exportApi, file));
+                // Left as is
+                assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+
+                assertNull(exportDataForAccountChannel(exportApi));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testChannel() throws Exception {
+        final byte[] export = newExport();
+        try (final LocalServer server = newServer(export, 200, true)) {
+            final ByteArrayOutputStream read = new ByteArrayOutputStream();
+            try (final ReadableByteChannel channel = exportDataForAccountChannel(newExportApi(server))) {
+                final ByteBuffer buffer = ByteBuffer.allocate(8192);
+                while (channel.read(buffer) != -1) {
+                    read.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            }
+            assertArrayEquals(export, read.toByteArray());
+        }
+    }
+
+    private static byte[] newExport() {
+        final byte[] result = new byte[SIZE];
+        new Random(42).nextBytes(result);
+        return result;
+    }
+
+    // Without Content-Length when streamed, the body ending with the connection
+    private static LocalServer newServer(final byte[] export, final int status, final boolean streamed) throws Exception {
+        return new LocalServer(request -> {
+            if (streamed) {
+                return LocalServer.Response.streamed(status, out -> {
+                    for (int offset = 0; offset < export.length; offset += 65536) {
+                        out.write(export, offset, Math.min(65536, export.length - offset));
+                        out.flush();
+                    }
+                }, "Content-Type", "application/octet-stream");
+            }
+            return new LocalServer.Response(status, export, "Content-Type", "application/octet-stream");
+        });
+    }
+
+    private static Object newExportApi(final LocalServer server) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("ExportApi", httpClient);
+    }
+
+    private static int exportDataForAccount(final Object exportApi, final Path file) throws Exception {
+        return (Integer) exportApi.getClass().getMethod("exportDataForAccount", UUID.class, Path.class, RequestOptions.class)
+                                  .invoke(exportApi, UUID.randomUUID(), file, RequestOptions.empty());
+    }
+
+    private static ReadableByteChannel exportDataForAccountChannel(final Object exportApi) throws Exception {
+        return (ReadableByteChannel) exportApi.getClass().getMethod("exportDataForAccountChannel", UUID.class, RequestOptions.class)
+                                              .invoke(exportApi, UUID.randomUUID(), RequestOptions.empty());
+    }
+}
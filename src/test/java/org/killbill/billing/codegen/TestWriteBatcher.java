@@ -0,0 +1,221 @@
+package org.killbill.billing.codegen;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+import org.killbill.billing.client.KillBillClientException;
+import org.killbill.billing.client.KillBillHttpClient;
+import org.killbill.billing.client.RequestOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * With a WriteBatcher, the ...Batched writes to the same object with the same options are sent in a single request.
+ */
+public class TestWriteBatcher {
+
+    // Held until flushed, or a full batch
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    @Test(timeout = 300000)
+    public void testMerged() throws Exception {
+        try (final LocalServer server = newServer(201)) {
+            final Object writeBatcher = newWriteBatcher(NEVER, 100);
+            final Object accountApi = newAccountApi(server, writeBatcher);
+            final UUID accountId = UUID.randomUUID();
+            final List<UUID> tagDefinitionIds = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+            final List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+            for (final UUID tagDefinitionId : tagDefinitionIds) {
+                futures.add(createAccountTagsBatched(accountApi, accountId, Collections.singletonList(tagDefinitionId), options("bob", null, null)));
+            }
+            assertEquals(0, server.getRequests().size());
+            writeBatcher.getClass().getMethod("flush").invoke(writeBatcher);
+
+            final Object tags = futures.get(0).get();
+            assertNotNull(tags);
+            for (final CompletableFuture<?> future : futures) {
+                // The response of the request, its own future
+                assertSame(tags, future.get());
+            }
+            final List<LocalServer.Request> posts = posts(server);
+            assertEquals(1, posts.size());
+            assertTrue(posts.get(0).getPath().endsWith("/accounts/" + accountId + "/tags"));
+            for (final UUID tagDefinitionId : tagDefinitionIds) {
+                assertTrue(posts.get(0).getBody(), posts.get(0).getBody().contains(tagDefinitionId.toString()));
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testSplit() throws Exception {
+        try (final LocalServer server = newServer(201)) {
+            final Object writeBatcher = newWriteBatcher(NEVER, 100);
+            final Object accountApi = newAccountApi(server, writeBatcher);
+            final UUID accountId = UUID.randomUUID();
+            final UUID otherAccountId = UUID.randomUUID();
+
+            final List<CompletableFuture<?>> futures = new ArrayList<CompletableFuture<?>>();
+            futures.add(createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null)));
+            // Merged with the first one
+            futures.add(createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null)));
+            // Another object, created by, reason, comment
+            futures.add(createAccountTagsBatched(accountApi, otherAccountId, newIds(1), options("bob", null, null)));
+            futures.add(createAccountTagsBatched(accountApi, accountId, newIds(1), options("alice", null, null)));
+            futures.add(createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", "reason", null)));
+            futures.add(createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, "comment")));
+            writeBatcher.getClass().getMethod("flush").invoke(writeBatcher);
+            for (final CompletableFuture<?> future : futures) {
+                assertNotNull(future.get());
+            }
+
+            final List<LocalServer.Request> posts = posts(server);
+            assertEquals(5, posts.size());
+            int merged = 0;
+            for (final LocalServer.Request post : posts) {
+                final int items = post.getBody().split(",").length;
+                if (items == 2) {
+                    merged++;
+                    assertTrue(post.getPath().contains(accountId.toString()));
+                    assertEquals("bob", post.getHeader("X-Killbill-CreatedBy"));
+                    assertNull(post.getHeader("X-Killbill-Reason"));
+                    assertNull(post.getHeader("X-Killbill-Comment"));
+                } else {
+                    assertEquals(post.getBody(), 1, items);
+                }
+            }
+            assertEquals(1, merged);
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testMaxBatchSize() throws Exception {
+        try (final LocalServer server = newServer(201)) {
+            final Object accountApi = newAccountApi(server, newWriteBatcher(NEVER, 3));
+            final UUID accountId = UUID.randomUUID();
+
+            final CompletableFuture<?> first = createAccountTagsBatched(accountApi, accountId, newIds(2), options("bob", null, null));
+            final CompletableFuture<?> second = createAccountTagsBatched(accountApi, accountId, newIds(2), options("bob", null, null));
+            // Sent right away, without flush
+            assertSame(first.get(), second.get());
+            assertEquals(1, posts(server).size());
+            assertEquals(4, posts(server).get(0).getBody().split(",").length);
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testMaxDelay() throws Exception {
+        try (final LocalServer server = newServer(201)) {
+            final Object accountApi = newAccountApi(server, newWriteBatcher(Duration.ofMillis(50), 100));
+            assertNotNull(createAccountTagsBatched(accountApi, UUID.randomUUID(), newIds(1), options("bob", null, null)).get());
+            assertEquals(1, posts(server).size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testFailedBatch() throws Exception {
+        try (final LocalServer server = newServer(400)) {
+            final Object writeBatcher = newWriteBatcher(NEVER, 100);
+            final Object accountApi = newAccountApi(server, writeBatcher);
+            final UUID accountId = UUID.randomUUID();
+
+            final CompletableFuture<?> first = createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null));
+            final CompletableFuture<?> second = createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null));
+            writeBatcher.getClass().getMethod("flush").invoke(writeBatcher);
+            for (final CompletableFuture<?> future : Arrays.asList(first, second)) {
+                try {
+                    future.get();
+                    fail();
+                } catch (final ExecutionException e) {
+                    assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof KillBillClientException);
+                    assertEquals(400, ((KillBillClientException) e.getCause()).getResponse().statusCode());
+                }
+            }
+            assertEquals(1, posts(server).size());
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testWithoutWriteBatcher() throws Exception {
+        try (final LocalServer server = newServer(201)) {
+            final Object accountApi = newAccountApi(server, null);
+            final UUID accountId = UUID.randomUUID();
+
+            final CompletableFuture<?> first = createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null));
+            final CompletableFuture<?> second = createAccountTagsBatched(accountApi, accountId, newIds(1), options("bob", null, null));
+            assertNotNull(first.get());
+            assertNotNull(second.get());
+            // Sent as is
+            assertEquals(2, posts(server).size());
+            assertNotSame(first.get(), second.get());
+        }
+    }
+
+    // The POST answers with the Location of the tags of the object, or fails
+    private static LocalServer newServer(final int postStatus) throws Exception {
+        final LocalServer[] server = new LocalServer[1];
+        server[0] = new LocalServer(request -> {
+            if (!"POST".equals(request.getMethod())) {
+                return LocalServer.Response.json("[]");
+            }
+            if (postStatus != 201) {
+                return LocalServer.Response.error(postStatus, "failing");
+            }
+            return new LocalServer.Response(201, new byte[0], "Location", server[0].getUrl() + request.getPath());
+        });
+        return server[0];
+    }
+
+    private static Object newWriteBatcher(final Duration maxDelay, final int maxBatchSize) throws Exception {
+        final Class<?> writeBatcherClass = GeneratedJavaClient.loadClass(GeneratedJavaClient.API_PACKAGE + ".WriteBatcher");
+        final Object builder = writeBatcherClass.getMethod("builder").invoke(null);
+        builder.getClass().getMethod("withMaxDelay", Duration.class).invoke(builder, maxDelay);
+        builder.getClass().getMethod("withMaxBatchSize", int.class).invoke(builder, maxBatchSize);
+        return builder.getClass().getMethod("build").invoke(builder);
+    }
+
+    private static Object newAccountApi(final LocalServer server, final Object writeBatcher) throws Exception {
+        final KillBillHttpClient httpClient = new KillBillHttpClient(server.getUrl(), "admin", "password", "bob", "lazar");
+        return GeneratedJavaClient.newApi("AccountApi", httpClient, "withWriteBatcher", writeBatcher);
+    }
+
+    private static CompletableFuture<?> createAccountTagsBatched(final Object accountApi, final UUID accountId, final List<UUID> tagDefinitionIds, final RequestOptions requestOptions) throws Exception {
+        return (CompletableFuture<?>) accountApi.getClass().getMethod("createAccountTagsBatched", UUID.class, List.class, RequestOptions.class)
+                                                .invoke(accountApi, accountId, tagDefinitionIds, requestOptions);
+    }
+
+    private static RequestOptions options(final String createdBy, final String reason, final String comment) {
+        return RequestOptions.builder().withCreatedBy(createdBy).withReason(reason).withComment(comment).build();
+    }
+
+    private static List<LocalServer.Request> posts(final LocalServer server) {
+        final List<LocalServer.Request> result = new ArrayList<LocalServer.Request>();
+        for (final LocalServer.Request request : server.getRequests()) {
+            if ("POST".equals(request.getMethod())) {
+                result.add(request);
+            }
+        }
+        return result;
+    }
+
+    private static List<UUID> newIds(final int count) {
+        final List<UUID> result = new ArrayList<UUID>();
+        for (int i = 0; i < count; i++) {
+            result.add(UUID.randomUUID());
+        }
+        return result;
+    }
+}
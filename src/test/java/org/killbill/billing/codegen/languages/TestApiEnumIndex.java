@@ -0,0 +1,72 @@
+package org.killbill.billing.codegen.languages;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The on-disk index of the API enums is reused as long as it can be read, and rebuilt from the jar otherwise.
+ */
+public class TestApiEnumIndex {
+
+    @Test(timeout = 300000)
+    public void testCacheRoundTrip() throws Exception {
+        final File cacheDir = Files.createTempDirectory(new File("target").toPath(), "api-enums").toFile();
+        final String apiJar = apiJar();
+
+        final ApiEnumIndex scanned = ApiEnumIndex.load(apiJar, cacheDir);
+        final File cacheFile = ApiEnumIndex.getCacheFile(apiJar, cacheDir);
+        assertTrue(cacheFile.isFile());
+        assertEquals(Currency.class.getName(), scanned.findByFirstValue(Currency.values()[0].name()).getClassName());
+
+        final ApiEnumIndex cached = ApiEnumIndex.load(apiJar, cacheDir);
+        assertEquals(describe(scanned.getEnums()), describe(cached.getEnums()));
+
+        // Read from the cache, not from the jar
+        Files.write(cacheFile.toPath(), "Currency\torg.killbill.billing.catalog.api.Currency\tXXX,YYY\n".getBytes(StandardCharsets.UTF_8));
+        final ApiEnumIndex rewritten = ApiEnumIndex.load(apiJar, cacheDir);
+        assertEquals(1, rewritten.getEnums().size());
+        assertNotNull(rewritten.findByFirstValue("XXX"));
+        assertNull(rewritten.findByFirstValue(Currency.values()[0].name()));
+    }
+
+    @Test(timeout = 300000)
+    public void testCorruptedCache() throws Exception {
+        final File cacheDir = Files.createTempDirectory(new File("target").toPath(), "api-enums").toFile();
+        final String apiJar = apiJar();
+        final List<String> expected = describe(ApiEnumIndex.load(apiJar, Files.createTempDirectory(new File("target").toPath(), "api-enums").toFile()).getEnums());
+
+        final File cacheFile = ApiEnumIndex.getCacheFile(apiJar, cacheDir);
+        Files.write(cacheFile.toPath(), "Currency\tno constants\n".getBytes(StandardCharsets.UTF_8));
+
+        // Scanned again, and the cache replaced
+        assertEquals(expected, describe(ApiEnumIndex.load(apiJar, cacheDir).getEnums()));
+        assertEquals(expected, describe(ApiEnumIndex.load(apiJar, cacheDir).getEnums()));
+        assertTrue(new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8).contains(Currency.class.getName()));
+    }
+
+    private static String apiJar() throws Exception {
+        return new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    private static List<String> describe(final Collection<ApiEnumIndex.ApiEnum> apiEnums) {
+        final List<String> result = new ArrayList<>();
+        for (final ApiEnumIndex.ApiEnum apiEnum : apiEnums) {
+            result.add(apiEnum.getName() + " " + apiEnum.getClassName() + " " + apiEnum.getConstants());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package org.killbill.billing.codegen.languages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * The enums found in the class files are the ones (and only the ones) the JVM sees as enums.
+ */
+public class TestClassFileEnumScanner {
+
+    private enum Shape {
+        SQUARE,
+        // Compiled into an ACC_ENUM subclass, which is not an enum
+        CIRCLE {
+            @Override
+            public String toString() {
+                return "round";
+            }
+        }
+    }
+
+    @Test(timeout = 300000)
+    public void testApiJar() throws Exception {
+        final String apiJar = new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+
+        final List<String> expected = new ArrayList<>();
+        try (final JarFile jar = new JarFile(apiJar)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+                final Class<?> loaded;
+                try {
+                    loaded = Class.forName(name.substring(0, name.length() - ".class".length()).replace('/', '.'), false, getClass().getClassLoader());
+                } catch (final NoClassDefFoundError e) {
+                    continue;
+                }
+                if (loaded.isEnum()) {
+                    final List<String> constants = new ArrayList<>();
+                    for (final Object constant : loaded.getEnumConstants()) {
+                        constants.add(((Enum<?>) constant).name());
+                    }
+                    expected.add(loaded.getSimpleName() + " " + loaded.getName() + " " + constants);
+                }
+            }
+        }
+
+        final List<String> scanned = new ArrayList<>();
+        for (final ApiEnumIndex.ApiEnum apiEnum : ClassFileEnumScanner.scan(apiJar)) {
+            scanned.add(apiEnum.getName() + " " + apiEnum.getClassName() + " " + apiEnum.getConstants());
+        }
+        Collections.sort(expected);
+        Collections.sort(scanned);
+        assertEquals(expected, scanned);
+    }
+
+    @Test(timeout = 300000)
+    public void testConstantSpecificBodies() throws Exception {
+        final ApiEnumIndex.ApiEnum shape = ClassFileEnumScanner.parse(classFile(Shape.class));
+        assertEquals("Shape", shape.getName());
+        assertEquals(Shape.class.getName(), shape.getClassName());
+        // Names, not toString()
+        assertEquals(Arrays.asList("SQUARE", "CIRCLE"), shape.getConstants());
+
+        assertNull(ClassFileEnumScanner.parse(classFile(Shape.CIRCLE.getClass())));
+        assertNull(ClassFileEnumScanner.parse(classFile(TestClassFileEnumScanner.class)));
+    }
+
+    private static byte[] classFile(final Class<?> clazz) throws IOException {
+        try (final InputStream in = clazz.getResourceAsStream("/" + clazz.getName().replace('.', '/') + ".class")) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
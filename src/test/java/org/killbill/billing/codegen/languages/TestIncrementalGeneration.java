@@ -0,0 +1,128 @@
+package org.killbill.billing.codegen.languages;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.killbill.billing.catalog.api.Currency;
+
+import io.swagger.codegen.ClientOptInput;
+import io.swagger.codegen.ClientOpts;
+import io.swagger.codegen.CodegenConfig;
+import io.swagger.codegen.DefaultGenerator;
+import io.swagger.models.ModelImpl;
+import io.swagger.models.Swagger;
+import io.swagger.models.properties.StringProperty;
+import io.swagger.parser.SwaggerParser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * With -Dincremental=true, only the files whose part of the spec changed are written, and the ones no longer generated are deleted.
+ */
+public class TestIncrementalGeneration {
+
+    private static final String SPEC = "src/test/resources/widgets.yaml";
+    private static final String MODELS = "src/main/java/org/killbill/billing/client/model/gen/";
+    private static final String APIS = "src/main/java/org/killbill/billing/client/api/gen/";
+    // Older than any generated file
+    private static final long UNTOUCHED = 1000000000000L;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        System.setProperty("kbApiJar", new File(Currency.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        System.setProperty(SpecFingerprints.INCREMENTAL, "true");
+        System.setProperty("apiDocs", "false");
+        System.setProperty("apiTests", "false");
+        System.setProperty("modelDocs", "false");
+        System.setProperty("modelTests", "false");
+    }
+
+    @Test(timeout = 300000)
+    public void testOnlyChangedFilesWritten() throws Exception {
+        final File output = Files.createTempDirectory(new File("target").toPath(), "incremental").toFile();
+        generate(new SwaggerParser().read(SPEC), output);
+        for (final String file : new String[]{MODELS + "Widget.java", MODELS + "Part.java", MODELS + "Gizmo.java", APIS + "WidgetApi.java", APIS + "GizmoApi.java"}) {
+            assertTrue(new File(output, file).setLastModified(UNTOUCHED));
+        }
+
+        generate(new SwaggerParser().read(SPEC), output);
+        assertEquals(UNTOUCHED, new File(output, MODELS + "Widget.java").lastModified());
+        assertEquals(UNTOUCHED, new File(output, MODELS + "Part.java").lastModified());
+        assertEquals(UNTOUCHED, new File(output, APIS + "WidgetApi.java").lastModified());
+
+        // Part, and Widget which references it
+        final Swagger swagger = new SwaggerParser().read(SPEC);
+        ((ModelImpl) swagger.getDefinitions().get("Part")).addProperty("color", new StringProperty());
+        generate(swagger, output);
+        assertTrue(UNTOUCHED != new File(output, MODELS + "Part.java").lastModified());
+        assertTrue(read(new File(output, MODELS + "Part.java")).contains("getColor()"));
+        assertTrue(UNTOUCHED != new File(output, MODELS + "Widget.java").lastModified());
+        assertEquals(UNTOUCHED, new File(output, MODELS + "Gizmo.java").lastModified());
+        assertEquals(UNTOUCHED, new File(output, APIS + "WidgetApi.java").lastModified());
+        assertEquals(UNTOUCHED, new File(output, APIS + "GizmoApi.java").lastModified());
+    }
+
+    @Test(timeout = 300000)
+    public void testOrphansDeleted() throws Exception {
+        final File output = Files.createTempDirectory(new File("target").toPath(), "incremental").toFile();
+        generate(new SwaggerParser().read(SPEC), output);
+        assertTrue(new File(output, MODELS + "Gizmo.java").isFile());
+        assertTrue(new File(output, APIS + "GizmoApi.java").isFile());
+
+        final Swagger swagger = new SwaggerParser().read(SPEC);
+        swagger.getDefinitions().remove("Gizmo");
+        swagger.getPaths().remove("/1.0/kb/gizmos");
+        generate(swagger, output);
+
+        assertFalse(new File(output, MODELS + "Gizmo.java").exists());
+        assertFalse(new File(output, APIS + "GizmoApi.java").exists());
+        assertTrue(new File(output, MODELS + "Widget.java").isFile());
+        final String manifest = read(new File(output, ".swagger-codegen/FINGERPRINTS"));
+        assertFalse(manifest, manifest.contains("Gizmo"));
+        assertTrue(manifest, manifest.contains(MODELS + "Widget.java"));
+    }
+
+    @Test(timeout = 300000)
+    public void testGeneratorSalts() throws Exception {
+        final File output = Files.createTempDirectory(new File("target").toPath(), "incremental").toFile();
+        generate(new SwaggerParser().read(SPEC), output);
+        final String widget = new File(output, MODELS + "Widget.java").getPath();
+
+        assertTrue(isUpToDate(fingerprints(output), widget));
+        // An option is taken as is, even when a file has that name
+        assertFalse(isUpToDate(fingerprints(output).withOption("pom.xml", ""), widget));
+        assertFalse(isUpToDate(fingerprints(output).withInputFile("pom.xml"), widget));
+        // Same as no input when missing
+        assertTrue(isUpToDate(fingerprints(output).withInputFile("target/no-such-file"), widget));
+    }
+
+    // Fingerprints with the Kill Bill API jar as input and the compactModels option, like the generator
+    private static SpecFingerprints fingerprints(final File output) {
+        final CodegenConfig config = new KillbillJavaGenerator();
+        config.setOutputDir(output.getPath());
+        config.processOpts();
+        return new SpecFingerprints(config).withInputFile(System.getProperty("kbApiJar")).withOption("compactModels", false);
+    }
+
+    private static boolean isUpToDate(final SpecFingerprints fingerprints, final String filename) {
+        fingerprints.compute(new SwaggerParser().read(SPEC));
+        return fingerprints.isUpToDate(filename);
+    }
+
+    private static void generate(final Swagger swagger, final File output) {
+        final CodegenConfig config = new KillbillJavaGenerator();
+        config.setOutputDir(output.getPath());
+        final ClientOptInput input = new ClientOptInput().opts(new ClientOpts()).swagger(swagger);
+        input.setConfig(config);
+        new DefaultGenerator().opts(input).generate();
+    }
+
+    private static String read(final File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package org.killbill.billing.codegen.languages;
+
+import org.junit.Test;
+
+import io.swagger.models.Operation;
+import io.swagger.models.Path;
+import io.swagger.models.Swagger;
+import io.swagger.models.parameters.Parameter;
+import io.swagger.models.parameters.QueryParameter;
+import io.swagger.models.properties.StringProperty;
+import io.swagger.parser.SwaggerParser;
+import io.swagger.util.Json;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The Kill Bill specific metadata is set once on the spec, as vendor extensions surviving a copy of the spec.
+ */
+public class TestSpecNormalizer {
+
+    private static final String SPEC = "src/test/resources/widgets.yaml";
+
+    @Test(timeout = 300000)
+    public void testMarking() throws Exception {
+        final Swagger swagger = newSpec();
+        assertFalse(SpecNormalizer.isNormalized(swagger));
+        SpecNormalizer.normalize(swagger);
+        assertTrue(SpecNormalizer.isNormalized(swagger));
+        assertMarked(swagger);
+    }
+
+    @Test(timeout = 300000)
+    public void testCopy() throws Exception {
+        final Swagger swagger = newSpec();
+        SpecNormalizer.normalize(swagger);
+
+        final Swagger copy = Json.mapper().readValue(Json.mapper().writeValueAsString(swagger), Swagger.class);
+        assertTrue(SpecNormalizer.isNormalized(copy));
+        assertMarked(copy);
+
+        // Already normalized, left as is
+        copy.getPath("/1.0/kb/gizmos").getGet().getVendorExtensions().remove(SpecNormalizer.HAS_NON_REQUIRED_DEFAULT_QUERY_PARAMS);
+        SpecNormalizer.normalize(copy);
+        assertFalse(SpecNormalizer.hasNonRequiredDefaultQueryParams(copy.getPath("/1.0/kb/gizmos").getGet().getVendorExtensions()));
+    }
+
+    @Test(timeout = 300000)
+    public void testCacheMarking() throws Exception {
+        final Swagger swagger = new SwaggerParser().read("kbswagger.yaml");
+        SpecNormalizer.normalize(swagger);
+
+        // The configuration reads only, not everything of the Catalog or Tenant apis
+        assertTrue(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/catalog").getGet().getVendorExtensions()));
+        assertTrue(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/invoices/translation/{locale}").getGet().getVendorExtensions()));
+        assertTrue(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/tenants/uploadPluginConfig/{pluginName}").getGet().getVendorExtensions()));
+        assertFalse(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/catalog/versions").getGet().getVendorExtensions()));
+        assertFalse(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/catalog/plan").getGet().getVendorExtensions()));
+        assertFalse(SpecNormalizer.isCacheable(swagger.getPath("/1.0/kb/tenants/{tenantId}").getGet().getVendorExtensions()));
+
+        assertTrue(SpecNormalizer.isCacheInvalidating(swagger.getPath("/1.0/kb/catalog/xml").getPost().getVendorExtensions()));
+        assertTrue(SpecNormalizer.isCacheInvalidating(swagger.getPath("/1.0/kb/catalog/simplePlan").getPost().getVendorExtensions()));
+        assertTrue(SpecNormalizer.isCacheInvalidating(swagger.getPath("/1.0/kb/tenants/uploadPluginConfig/{pluginName}").getDelete().getVendorExtensions()));
+        assertFalse(SpecNormalizer.isCacheInvalidating(swagger.getPath("/1.0/kb/catalog/xml/validate").getPost().getVendorExtensions()));
+        assertFalse(SpecNormalizer.isCacheInvalidating(swagger.getPath("/1.0/kb/tenants").getPost().getVendorExtensions()));
+    }
+
+    private static void assertMarked(final Swagger swagger) {
+        final Operation getWidget = swagger.getPath("/1.0/kb/widgets/{widgetId}").getGet();
+        assertTrue(SpecNormalizer.hasNonRequiredDefaultQueryParams(getWidget.getVendorExtensions()));
+        assertTrue(SpecNormalizer.isQueryPluginProperty(parameter(getWidget, "pluginProperty").getVendorExtensions()));
+        assertFalse(SpecNormalizer.isQueryPluginProperty(parameter(getWidget, "audit").getVendorExtensions()));
+        assertFalse(SpecNormalizer.isQueryPluginProperty(parameter(getWidget, "widgetId").getVendorExtensions()));
+
+        // Required query parameter with a default, and a pluginProperty that is not a list
+        final Operation createWidget = swagger.getPath("/1.0/kb/widgets").getPost();
+        assertFalse(SpecNormalizer.hasNonRequiredDefaultQueryParams(createWidget.getVendorExtensions()));
+        assertFalse(SpecNormalizer.isQueryPluginProperty(parameter(createWidget, "pluginProperty").getVendorExtensions()));
+
+        // Parameter of the path, which the operations inherit
+        assertTrue(SpecNormalizer.hasNonRequiredDefaultQueryParams(swagger.getPath("/1.0/kb/gizmos").getGet().getVendorExtensions()));
+    }
+
+    private static Swagger newSpec() {
+        final Swagger swagger = new SwaggerParser().read(SPEC);
+
+        final Operation getWidget = swagger.getPath("/1.0/kb/widgets/{widgetId}").getGet();
+        getWidget.addParameter(queryParameter("pluginProperty", "array", false, null));
+        getWidget.addParameter(queryParameter("audit", "string", false, "NONE"));
+
+        final Operation createWidget = swagger.getPath("/1.0/kb/widgets").getPost();
+        createWidget.addParameter(queryParameter("dryRun", "boolean", true, false));
+        createWidget.addParameter(queryParameter("pluginProperty", "string", false, null));
+
+        final Path gizmos = swagger.getPath("/1.0/kb/gizmos");
+        gizmos.addParameter(queryParameter("limit", "integer", false, 100));
+        return swagger;
+    }
+
+    private static QueryParameter queryParameter(final String name, final String type, final boolean required, final Object defaultValue) {
+        final QueryParameter parameter = new QueryParameter().type(type);
+        parameter.setName(name);
+        parameter.setRequired(required);
+        parameter.setDefault(defaultValue);
+        if ("array".equals(type)) {
+            parameter.setItems(new StringProperty());
+        }
+        return parameter;
+    }
+
+    private static Parameter parameter(final Operation operation, final String name) {
+        for (final Parameter parameter : operation.getParameters()) {
+            if (name.equals(parameter.getName())) {
+                return parameter;
+            }
+        }
+        throw new AssertionError(name);
+    }
+}
@@ -0,0 +1,127 @@
+# Sends a list body given as an iterator with the rest.py of a generated python client (urllib3, asyncio or tornado
+# library), its dependencies replaced by stubs recording the request, and checks the JSON array sent.
+#
+# usage: python3 iterator_bodies.py <rest.py> <urllib3|asyncio|tornado> [python2]
+#
+# With python2, collections.abc is made unavailable, as on python 2, where Iterator is in collections.
+
+import abc
+import collections
+import importlib.util
+import io
+import json
+import logging
+import re
+import ssl
+import sys
+import types
+import zlib
+
+rest_path, library = sys.argv[1], sys.argv[2]
+python2 = len(sys.argv) > 3 and sys.argv[3] == 'python2'
+
+ITEMS = [{'name': 'field-%d' % i, 'value': 'x' * 100} for i in range(2000)]
+sent = {}
+
+
+def stub(name, **attributes):
+    module = types.ModuleType(name)
+    module.__dict__.update(attributes)
+    sys.modules[name] = module
+    return module
+
+
+class Response(object):
+    status = 200
+    reason = 'OK'
+    data = b''
+    body = b''
+    code = 200
+    headers = {}
+
+    def getheaders(self):
+        return {}
+
+    async def text(self):
+        return ''
+
+    async def __aenter__(self):
+        return self
+
+    async def __aexit__(self, *args):
+        return False
+
+
+class PoolManager(object):
+
+    def request(self, *args, **kwargs):
+        sent.update(kwargs)
+        return Response()
+
+    def fetch(self, request, raise_error=True):
+        sent['body'] = request.body
+        return Response()
+
+
+class HTTPRequest(object):
+
+    def __init__(self, url):
+        self.url = url
+        self.headers = {}
+        self.body = None
+
+
+class Return(Exception):
+    pass
+
+
+parse = stub('six.moves.urllib.parse', urlencode=lambda query: '', quote=lambda value, safe='': value)
+stub('six', PY3=True, moves=stub('six.moves', urllib=stub('six.moves.urllib', parse=parse)))
+stub('certifi', where=lambda: None)
+stub('urllib3', Timeout=object, exceptions=stub('urllib3.exceptions', SSLError=IOError),
+     filepost=stub('urllib3.filepost', encode_multipart_formdata=None))
+stub('aiohttp')
+httpclient = stub('tornado.httpclient', HTTPRequest=HTTPRequest)
+stub('tornado', gen=stub('tornado.gen', coroutine=lambda f: f, Return=Return), httpclient=httpclient)
+
+if python2:
+    # The standard modules rest.py imports are imported above, with collections.abc
+    python2_iterator = abc.ABCMeta('Iterator', (object,), {})
+    python2_iterator.register(types.GeneratorType)
+    collections.Iterator = python2_iterator
+    sys.modules['collections.abc'] = None
+
+spec = importlib.util.spec_from_file_location('rest', rest_path)
+rest = importlib.util.module_from_spec(spec)
+spec.loader.exec_module(rest)
+if python2:
+    sys.modules['collections.abc'] = collections.abc
+    assert rest.Iterator is python2_iterator, rest.Iterator
+
+client = rest.RESTClientObject.__new__(rest.RESTClientObject)
+client.pool_manager = PoolManager()
+client.gzip_min_size = None
+client.ca_certs = client.client_key = client.client_cert = client.proxy_host = client.proxy_port = None
+body = (item for item in ITEMS)
+headers = {'Content-Type': 'application/json'}
+
+if library == 'urllib3':
+    client.request('POST', 'http://localhost/1.0/kb/accounts/1/customFields', headers=headers, body=body)
+    # Written as the chunks are sent
+    assert sent['chunked'] is True, sent
+    chunks = list(sent['body'])
+    assert len(chunks) > 1, len(chunks)
+    received = b''.join(chunks).decode('utf-8')
+elif library == 'asyncio':
+    import asyncio
+    asyncio.run(client.request('POST', 'http://localhost/1.0/kb/accounts/1/customFields', headers=headers, body=body))
+    received = sent['data']
+elif library == 'tornado':
+    # The coroutine, up to the fetch of the request
+    next(client.request('POST', 'http://localhost/1.0/kb/accounts/1/customFields', headers=headers, body=body))
+    received = sent['body']
+else:
+    raise ValueError(library)
+
+assert json.loads(received) == ITEMS, received[:200]
+print('OK')